@@ -3,20 +3,245 @@
 // Title: ArtGallery.java
 ///////////////////////////////////////////////////////////////////////////////
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class models the Artwork Gallery implemented as a binary search tree. The search criteria
- * include the year of creation of the artwork, the name of the artwork and its cost.
+ * include the year of creation of the artwork, the name of the artwork and its cost. A gallery can
+ * be created in balanced mode, in which case it is kept as an AVL tree so that its height stays
+ * logarithmic in its size whatever the order in which the artworks are added or bought. The
+ * artworks are also kept in a hash index keyed by their name and year, so that exact matches are
+ * looked up and bought without depending on the shape of the tree.
  * 
  * @author Marin Suzuki & Xingzhen Cai
  *
  */
-public class ArtGallery {
+public class ArtGallery implements Iterable<Artwork> {
 
-  private BSTNode<Artwork> root; // root node of the artwork catalog BST
+  private GalleryNode root; // root node of the artwork catalog BST
   private int size; // size of the artwork catalog tree
+  private final boolean balanced; // true if this gallery rebalances itself on add and buy
+  private final ArtworkIndex index; // stored artworks keyed by name and year
+  private final CostIndex costIndex; // stored artworks ordered by cost
+  private final NameIndex nameIndex; // stored artworks searched by the words of their name
+
+  // minimum number of artworks for bulkLoad() to sort them in parallel
+  private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+  // maximum amount by which a cost may exceed a maximum cost and still be considered within it
+  protected static final double COST_TOLERANCE = 0.0001;
+
+  private static final int SNAPSHOT_MAGIC = 0x41525447; // "ARTG", first bytes of a snapshot
+  private static final int SNAPSHOT_VERSION = 1; // version of the snapshot format
+
+  /**
+   * Creates a new empty ArtGallery which does not rebalance itself
+   */
+  public ArtGallery() {
+    this(false);
+  }
+
+  /**
+   * Creates a new empty ArtGallery
+   * 
+   * @param balanced true to keep this gallery balanced (AVL) through addArtwork() and
+   *                 buyArtwork() operations, false to keep the plain BST behavior
+   */
+  public ArtGallery(boolean balanced) {
+    this.balanced = balanced;
+    this.index = new ArtworkIndex();
+    this.costIndex = new CostIndex();
+    this.nameIndex = new NameIndex();
+  }
+
+  /**
+   * Checks whether this gallery keeps itself balanced
+   * 
+   * @return true if this ArtworkGallery is kept balanced, false otherwise
+   */
+  public boolean isBalanced() {
+    return this.balanced;
+  }
+
+  /**
+   * Creates a balanced ArtGallery from a list of artworks already sorted in increasing order with
+   * respect to the result of Artwork.compareTo() method (year, cost, name). The tree is built
+   * directly with a minimum height in linear time, each subtree being rooted at the middle artwork
+   * of its range, while filling the secondary indexes takes O(n log n) time. Duplicates, and
+   * artworks matching an earlier one (same name and year), are stored only once.
+   * 
+   * @param sorted artworks sorted in increasing order
+   * @return a new balanced ArtGallery storing all the artworks of sorted
+   * @throws NullPointerException     if sorted or any of its artworks is null
+   * @throws IllegalArgumentException if sorted is not sorted in increasing order
+   */
+  public static ArtGallery fromSorted(List<Artwork> sorted) {
+
+    return fromSorted(sorted, true);
+
+  }
+
+  /**
+   * Creates an ArtGallery from a list of artworks already sorted in increasing order, as
+   * fromSorted(List) does, which keeps a given mode through its later updates. The tree starts
+   * with a minimum height in both modes.
+   * 
+   * @param sorted   artworks sorted in increasing order
+   * @param balanced true to keep the new gallery balanced (AVL) through addArtwork() and
+   *                 buyArtwork() operations, false to keep the plain BST behavior
+   * @return a new ArtGallery storing all the artworks of sorted
+   * @throws NullPointerException     if sorted or any of its artworks is null
+   * @throws IllegalArgumentException if sorted is not sorted in increasing order
+   */
+  public static ArtGallery fromSorted(List<Artwork> sorted, boolean balanced) {
+
+    if (sorted == null) {
+      throw new NullPointerException("Artwork list is null");
+    }
+
+    Artwork[] artworks = new Artwork[sorted.size()];
+    int count = 0;
+
+    for (Artwork artwork : sorted) {
+
+      if (artwork == null) {
+        throw new NullPointerException("Artwork is null");
+      }
+
+      if (count > 0) {
+        int compare = artworks[count - 1].compareTo(artwork);
+        if (compare == 0) {
+          continue; // duplicate
+        } else if (compare > 0) {
+          throw new IllegalArgumentException("Artworks are not sorted");
+        }
+      }
+
+      artworks[count++] = artwork;
+    }
+
+    return build(artworks, count, balanced);
+  }
+
+  /**
+   * Creates a balanced ArtGallery from a collection of artworks in any order. The artworks are
+   * sorted first, in parallel for large collections, then the tree is built directly with a
+   * minimum height in linear time and the secondary indexes are filled in O(n log n) time.
+   * Duplicates with respect to Artwork.compareTo(), and artworks matching a smaller one (same name
+   * and year), are stored only once.
+   * 
+   * @param artworks artworks to store in the new gallery
+   * @return a new balanced ArtGallery storing all the artworks of the collection
+   * @throws NullPointerException if artworks or any of its elements is null
+   */
+  public static ArtGallery bulkLoad(Collection<Artwork> artworks) {
+
+    if (artworks == null) {
+      throw new NullPointerException("Artwork collection is null");
+    }
+
+    Artwork[] sorted = artworks.toArray(new Artwork[0]);
+    for (Artwork artwork : sorted) {
+      if (artwork == null) {
+        throw new NullPointerException("Artwork is null");
+      }
+    }
+
+    if (sorted.length >= PARALLEL_SORT_THRESHOLD) {
+      Arrays.parallelSort(sorted);
+    } else {
+      Arrays.sort(sorted);
+    }
+
+    // drop duplicates, which are now next to each other
+    int count = 0;
+    for (Artwork artwork : sorted) {
+      if (count == 0 || sorted[count - 1].compareTo(artwork) != 0) {
+        sorted[count++] = artwork;
+      }
+    }
+
+    return build(sorted, count, true);
+  }
+
+  /**
+   * Creates an ArtGallery of minimum height storing the first count artworks of a sorted array
+   * without duplicates. Artworks matching a previous one (same name and year) are dropped while
+   * they are indexed, then the tree is built from the remaining ones.
+   * 
+   * @param sorted   artworks sorted in strictly increasing order
+   * @param count    number of artworks to store from the beginning of sorted
+   * @param balanced true if the new gallery keeps itself balanced
+   * @return a new ArtGallery of minimum height
+   */
+  private static ArtGallery build(Artwork[] sorted, int count, boolean balanced) {
+
+    ArtGallery gallery = new ArtGallery(balanced);
+
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+      if (gallery.index.add(sorted[i])) {
+        gallery.costIndex.add(sorted[i]);
+        gallery.nameIndex.add(sorted[i]);
+        sorted[kept++] = sorted[i];
+      }
+    }
+
+    gallery.root = buildHelper(sorted, 0, kept - 1);
+    gallery.size = kept;
+    return gallery;
+  }
+
+  /**
+   * Recursive helper method which builds a minimum-height subtree storing a range of a sorted
+   * array, rooted at the middle artwork of the range. The recursion depth is logarithmic in the
+   * size of the range.
+   * 
+   * @param sorted artworks sorted in strictly increasing order
+   * @param from   index of the first artwork of the range
+   * @param to     index of the last artwork of the range
+   * @return the "root" of the new subtree, or null if the range is empty
+   */
+  protected static GalleryNode buildHelper(Artwork[] sorted, int from, int to) {
+
+    if (from > to) {
+      return null; // empty range
+    }
+
+    int middle = (from + to) >>> 1;
+    return new GalleryNode(sorted[middle], buildHelper(sorted, from, middle - 1),
+        buildHelper(sorted, middle + 1, to));
+  }
 
   /**
    * Checks whether this binary search tree (BST) is empty
@@ -45,7 +270,9 @@ public class ArtGallery {
   }
 
   /**
-   * Checks whether this ArtworkGallery contains a Artwork given its name, year, and cost.
+   * Checks whether this ArtworkGallery contains a Artwork given its name, year, and cost. The match
+   * is searched in the hash index of the gallery, so it takes O(1) expected time whatever the shape
+   * of the tree, and it is found even if cost differs from the cost of the stored artwork.
    * 
    * @param name name of the Artwork to search
    * @param year year of creation of the Artwork to search
@@ -54,19 +281,34 @@ public class ArtGallery {
    */
   public boolean lookup(String name, int year, double cost) {
 
-    Artwork newArtwork = new Artwork(name, year, cost);
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
 
-    if (this.isEmpty()) {
-      return false; // no item, so no found
+  }
+
+  /**
+   * Checks whether this ArtworkGallery contains a Artwork given its name and year. The key is
+   * compared against the stored artworks directly, so this method neither creates any object nor
+   * checks the validity of the key: an invalid key has no match.
+   * 
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
     }
 
-    return lookupHelper(newArtwork, this.root); // start from root
+    return index.get(name, year) != null;
 
   }
 
   /**
-   * Recursive helper method to search whether there is a match with a given Artwork in the subtree
-   * rooted at current
+   * Helper method to search whether there is a match with a given Artwork in the subtree rooted at
+   * current. The search walks down a single path of the tree in a loop.
    * 
    * @param target  a reference to a Artwork we are searching for a match in the BST rooted at
    *                current.
@@ -75,34 +317,50 @@ public class ArtGallery {
    */
   protected static boolean lookupHelper(Artwork target, BSTNode<Artwork> current) {
 
-    // Base case1: if I fall off the tree
-    if (current == null) {
+    return lookupHelper(target.getName(), target.getYear(), target.getCost(), current);
 
-      return false;
+  }
 
-    }
+  /**
+   * Helper method to search whether there is a match with an artwork key given by its components
+   * in the subtree rooted at current. The key is compared against the data of the nodes directly,
+   * so the search walks down a single path of the tree without creating any object.
+   * 
+   * @param name    name of the searched artwork
+   * @param year    year of creation of the searched artwork
+   * @param cost    cost of the searched artwork, which drives the search down the tree
+   * @param current "root" of the subtree we are checking whether it contains a match to the key.
+   * @return true if match found and false otherwise
+   */
+  protected static boolean lookupHelper(String name, int year, double cost,
+      BSTNode<Artwork> current) {
 
-    // Base case2: matched found
-    if (target.equals(current.getData())) {
+    // stop when we fall off the tree
+    while (current != null) {
 
-      return true;
+      // matched found
+      if (current.getData().hasKey(name, year)) {
 
-    }
+        return true;
+
+      }
 
-    // Recursive case:
-    int compare = current.getData().compareTo(target);
-    if (compare < 0) {
+      int compare = current.getData().compareTo(year, cost, name);
+      if (compare < 0) {
 
-      // go to the right child
-      return lookupHelper(target, current.getRight());
+        // go to the right child
+        current = current.getRight();
 
-    } else {
+      } else {
 
-      // go to the left child
-      return lookupHelper(target, current.getLeft());
+        // go to the left child
+        current = current.getLeft();
 
+      }
     }
 
+    return false;
+
   }
 
   /**
@@ -110,7 +368,7 @@ public class ArtGallery {
    * 
    * @param newArtwork a new Artwork to add to this BST (gallery of artworks).
    * @return true if the newArtwork was successfully added to this gallery, and returns false if
-   *         there is a match with this Artwork already stored in gallery.
+   *         there is a match with this Artwork (same name and year) already stored in gallery.
    * @throws NullPointerException if newArtwork is null
    */
   public boolean addArtwork(Artwork newArtwork) {
@@ -122,79 +380,72 @@ public class ArtGallery {
 
     }
 
-    // Case1: when the tree is empty
-    if (this.isEmpty()) {
-
-      this.root = new BSTNode<Artwork>(newArtwork);
-      this.size++;
-      return true; // successfully added
+    if (!index.add(newArtwork)) { // match already stored, whatever its cost
 
-    } else {
+      return false;
 
-      // successfully added
-      if (addArtworkHelper(newArtwork, this.root) == true) {
+    }
 
-        this.size++;
-        return true;
+    GalleryNode newRoot = addArtworkHelper(newArtwork, this.root, this.balanced);
 
-      } else { // unsuccessful
+    if (newRoot == null) { // unsuccessful
 
-        return false;
+      return false;
 
-      }
     }
+
+    // successfully added
+    this.root = newRoot;
+    this.costIndex.add(newArtwork);
+    this.nameIndex.add(newArtwork);
+    this.size++;
+    return true;
   }
 
   /**
-   * Recursive helper method to add a new Artwork to an ArtworkGallery rooted at current.
+   * Helper method to add a new Artwork to an ArtworkGallery rooted at current. The nodes visited on
+   * the way down are kept on an explicit path so that every subtree on the way back to the root
+   * can be updated, and rebalanced with rotations in balanced mode.
    * 
-   * @param current    The "root" of the subtree we are inserting new Artwork into.
    * @param newArtwork The Artwork to be added to a BST rooted at current.
-   * @return true if the newArtwork was successfully added to this ArtworkGallery, false if a match
-   *         with newArtwork is already present in the subtree rooted at current.
+   * @param current    The "root" of the subtree we are inserting new Artwork into.
+   * @param balanced   true to rebalance the subtree after the insertion
+   * @return the new "root" of the subtree after inserting newArtwork, or null if a match with
+   *         newArtwork is already present in the subtree rooted at current.
    */
-  protected static boolean addArtworkHelper(Artwork newArtwork, BSTNode<Artwork> current) {
+  protected static GalleryNode addArtworkHelper(Artwork newArtwork, GalleryNode current,
+      boolean balanced) {
 
-    // this value is greater or less than the current node or not
-    int compare = current.getData().compareTo(newArtwork);
-
-    if (compare < 0) {
-
-      // Greater: check if the right child id null or not
-      if (current.getRight() == null) {
-
-        // right child is null, then put it there
-        current.setRight(new BSTNode<Artwork>(newArtwork));
-        return true;
+    // empty subtree, newArtwork is its new root
+    if (current == null) {
+      return new GalleryNode(newArtwork);
+    }
 
-      } else {
+    GalleryNode[] path = new GalleryNode[current.getHeight()];
+    int depth = 0;
 
-        // not null
-        return addArtworkHelper(newArtwork, current.getRight());
+    while (current != null) {
 
+      int compare = current.getData().compareTo(newArtwork);
+      if (compare == 0) {
+        return null; // duplicate found
       }
 
-    } else if (compare > 0) {
-
-      // check if the left child is null or not
-      if (current.getLeft() == null) {
-
-        // left child is null, then put it there
-        current.setLeft(new BSTNode<Artwork>(newArtwork));
-        return true;
-
-      } else {
+      path[depth++] = current;
+      current = compare < 0 ? current.getRight() : current.getLeft();
 
-        // not null
-        return addArtworkHelper(newArtwork, current.getLeft());
+    }
 
-      }
+    // attach the new leaf under the last visited node
+    GalleryNode parent = path[depth - 1];
+    if (parent.getData().compareTo(newArtwork) < 0) {
+      parent.setRight(new GalleryNode(newArtwork));
     } else {
-
-      return false; // duplicate found
-
+      parent.setLeft(new GalleryNode(newArtwork));
     }
 
+    return retrace(path, depth, balanced);
+
   }
 
   /**
@@ -221,6 +472,33 @@ public class ArtGallery {
 
   }
 
+  /**
+   * Creates a read-optimized copy of this gallery. The copy stores the artworks in arrays laid out
+   * for cache-friendly searches, and does not change when this gallery changes.
+   * 
+   * @return a FrozenArtGallery storing the artworks currently stored in this gallery
+   */
+  public FrozenArtGallery freeze() {
+
+    Artwork[] sorted = new Artwork[this.size];
+    int count = 0;
+
+    // in-order traversal with an explicit stack
+    ArrayDeque<GalleryNode> stack = new ArrayDeque<GalleryNode>();
+    GalleryNode current = this.root;
+    while (current != null || !stack.isEmpty()) {
+      while (current != null) {
+        stack.push(current);
+        current = current.getLeft();
+      }
+      current = stack.pop();
+      sorted[count++] = current.getData();
+      current = current.getRight();
+    }
+
+    return new FrozenArtGallery(sorted);
+  }
+
   /**
    * Returns a String representation of all the artwork stored within this BST in the increasing
    * order of year, separated by a newline "\n". For instance
@@ -238,8 +516,8 @@ public class ArtGallery {
   }
 
   /**
-   * Recursive helper method which returns a String representation of the BST rooted at current. An
-   * example of the String representation of the contents of a ArtworkGallery is provided in the
+   * Helper method which returns a String representation of the BST rooted at current. An example
+   * of the String representation of the contents of a ArtworkGallery is provided in the
    * description of the above toString() method.
    * 
    * @param current reference to the current Artwork within this BST (root of a subtree)
@@ -249,225 +527,1790 @@ public class ArtGallery {
    */
   protected static String toStringHelper(BSTNode<Artwork> current) {
 
-    if (current == null) { // empty tree
-      return "";
-    }
+    StringBuilder representation = new StringBuilder();
 
-    // node expression
-    String representation = "[(Name: " + current.getData().getName() + ") (Year: "
-        + current.getData().getYear() + ") (Cost: $" + current.getData().getCost() + ")]" + "\n";
+    try {
+      writeToHelper(representation, current);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // never thrown by a StringBuilder
+    }
 
-    return toStringHelper(current.getLeft()) + representation + toStringHelper(current.getRight());
+    return representation.toString();
 
   }
 
   /**
-   * Computes and returns the height of this BST, counting the number of NODES from root to the
-   * deepest leaf.
+   * Writes all the artwork stored within this BST to a given destination, in the same format and
+   * order as the toString() method. The artworks are streamed one by one while the tree is
+   * traversed, so no intermediate String of the whole catalog is ever built.
    * 
-   * @return the height of this Binary Search Tree
+   * @param out destination of the String representation of this gallery
+   * @throws IOException         if out fails to append a character sequence
+   * @throws NullPointerException if out is null
    */
-  public int height() {
+  public void writeTo(Appendable out) throws IOException {
 
-    // Case 1: the tree is empty
-    if (this.isEmpty()) {
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
+    }
 
-      return 0;
+    writeToHelper(out, this.root);
 
-    } else {
+  }
 
-      return heightHelper(this.root);
+  /**
+   * Writes all the artwork stored within this BST to a given writer, in the same format and order
+   * as the toString() method. The writer is buffered if it is not already, and flushed once the
+   * whole gallery has been written.
+   * 
+   * @param out writer to write the String representation of this gallery to
+   * @throws IOException         if out fails to write
+   * @throws NullPointerException if out is null
+   */
+  public void writeTo(Writer out) throws IOException {
 
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
     }
 
+    Writer buffered = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+    writeToHelper(buffered, this.root);
+    buffered.flush();
+
   }
 
   /**
-   * Recursive helper method that computes the height of the subtree rooted at current counting the
-   * number of nodes and NOT the number of edges from current to the deepest leaf
+   * Helper method which appends the String representation of the BST rooted at current to a given
+   * destination in a single in-order traversal. The traversal uses an explicit stack, so it needs
+   * no more extra memory than the height of the subtree.
    * 
-   * @param current pointer to the current BSTNode within a ArtworkGallery (root of a subtree)
-   * @return height of the subtree rooted at current
+   * @param out     destination of the String representation
+   * @param current reference to the current Artwork within this BST (root of a subtree)
+   * @throws IOException if out fails to append a character sequence
    */
-  protected static int heightHelper(BSTNode<Artwork> current) {
+  protected static void writeToHelper(Appendable out, BSTNode<Artwork> current)
+      throws IOException {
 
-    int height = 0;
+    ArrayDeque<BSTNode<Artwork>> stack = new ArrayDeque<BSTNode<Artwork>>();
+
+    while (current != null || !stack.isEmpty()) {
 
-    // base case: no more children
-    if (current.getRight() == null && current.getLeft() == null) {
+      // go as far left as possible
+      while (current != null) {
+        stack.push(current);
+        current = current.getLeft();
+      }
 
-      height = 1;
+      // node expression
+      current = stack.pop();
+      writeArtwork(out, current.getData());
 
-    } else if (current.getRight() == null && current.getLeft() != null) {
+      current = current.getRight();
+    }
 
-      // it has only left child
-      height = 1 + heightHelper(current.getLeft());
+  }
 
-    } else if (current.getLeft() == null && current.getRight() != null) {
+  /**
+   * Helper method which appends the String representation of a single artwork, followed by a
+   * newline, to a given destination. This is the line format used by toString() and writeTo().
+   * 
+   * @param out     destination of the String representation
+   * @param artwork artwork to write
+   * @throws IOException if out fails to append a character sequence
+   */
+  protected static void writeArtwork(Appendable out, Artwork artwork) throws IOException {
 
-      // it has only right child
-      height = 1 + heightHelper(current.getRight());
+    out.append("[(Name: ").append(artwork.getName()).append(") (Year: ")
+        .append(String.valueOf(artwork.getYear())).append(") (Cost: $")
+        .append(String.valueOf(artwork.getCost())).append(")]").append('\n');
 
-    } else if (current.getRight() != null && current.getLeft() != null) {
+  }
 
-      // it has both children
-      height = 1 + Math.max(heightHelper(current.getRight()), heightHelper(current.getLeft()));
+  /**
+   * Saves this gallery to a binary snapshot file, which load() maps back into a gallery with the
+   * same shape. The file starts with a header (magic number, version, balanced
+   * mode, number of artworks and of distinct names), followed by a table of the distinct names in
+   * UTF-8, then by one fixed-width record per node in pre-order: the index of its name in the
+   * table, its year, its cost and whether it has a left and a right child.
+   * 
+   * @param file path of the snapshot file, replaced if it already exists
+   * @throws IOException          if the file cannot be written
+   * @throws NullPointerException if file is null
+   */
+  public void save(Path file) throws IOException {
 
+    if (file == null) {
+      throw new NullPointerException("Path is null");
     }
 
-    return height;
+    // pre-order traversal with an explicit stack
+    Artwork[] artworks = new Artwork[this.size];
+    byte[] children = new byte[this.size];
+    int count = 0;
+
+    ArrayDeque<GalleryNode> stack = new ArrayDeque<GalleryNode>();
+    if (this.root != null) {
+      stack.push(this.root);
+    }
+    while (!stack.isEmpty()) {
+      GalleryNode node = stack.pop();
+      artworks[count] = node.getData();
+      children[count++] =
+          (byte) ((node.getLeft() != null ? 1 : 0) | (node.getRight() != null ? 2 : 0));
+      if (node.getRight() != null) {
+        stack.push(node.getRight());
+      }
+      if (node.getLeft() != null) {
+        stack.push(node.getLeft());
+      }
+    }
+
+    writeSnapshot(file, this.balanced, artworks, children);
 
   }
 
   /**
-   * Search for all artwork objects created on a given year and have a maximum cost value.
+   * Saves the gallery which fromSorted() would build from an array of artworks to a binary
+   * snapshot file, without building it. The records are written in the pre-order of the tree of
+   * minimum height that buildHelper() would link, so load() restores exactly that gallery.
    * 
-   * @param year creation year of artwork
-   * @param cost the maximum cost we would like to search for a artwork
-   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
-   *         cost. If no artwork satisfies the lookup query, this method returns an empty arraylist
+   * @param sorted   artworks sorted in strictly increasing order, no two of them matching (same
+   *                 name and year)
+   * @param balanced true if the saved gallery keeps itself balanced
+   * @param file     path of the snapshot file, replaced if it already exists
+   * @throws IOException          if the file cannot be written
+   * @throws NullPointerException if file is null
    */
-  public ArrayList<Artwork> lookupAll(int year, double cost) {
+  protected static void saveSorted(Artwork[] sorted, boolean balanced, Path file)
+      throws IOException {
 
-    ArrayList<Artwork> artworkList = new ArrayList<Artwork>();
+    if (file == null) {
+      throw new NullPointerException("Path is null");
+    }
 
-    if (this.isEmpty())
-      return artworkList;// if the tree is empty return empty arraylist
+    Artwork[] artworks = new Artwork[sorted.length];
+    byte[] children = new byte[sorted.length];
+    preOrderHelper(sorted, 0, sorted.length - 1, artworks, children, 0);
 
-    BSTNode<Artwork> current = this.root;
-    artworkList = lookupAllHelper(year, cost, current);
+    writeSnapshot(file, balanced, artworks, children);
 
-    return artworkList;
   }
 
   /**
-   * Recursive helper method to lookup the list of artworks given their year of creation and a
-   * maximum value of cost
+   * Recursive helper method which lists the artworks of a range of a sorted array in the pre-order
+   * of the minimum-height subtree that buildHelper() would build from it, with the children flags
+   * of their nodes
    * 
-   * @param year    the year we would like to search for a artwork
-   * @param cost    the maximum cost we would like to search for a artwork
-   * @param current "root" of the subtree we are looking for a match to find within it.
-   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
-   *         cost stored in the subtree rooted at current. If no artwork satisfies the lookup query,
-   *         this method returns an empty arraylist
+   * @param sorted   artworks sorted in strictly increasing order
+   * @param from     index of the first artwork of the range
+   * @param to       index of the last artwork of the range
+   * @param artworks array receiving the artworks in pre-order
+   * @param children array receiving whether each node has a left (1) and a right (2) child
+   * @param count    number of artworks already listed
+   * @return the number of artworks listed after the range
    */
-  protected static ArrayList<Artwork> lookupAllHelper(int year, double cost,
-      BSTNode<Artwork> current) {
-
-    ArrayList<Artwork> artworkList = new ArrayList<Artwork>();
-    if (current == null) {
-      return artworkList;
-    }
+  private static int preOrderHelper(Artwork[] sorted, int from, int to, Artwork[] artworks,
+      byte[] children, int count) {
 
-    if (current.getData().getYear() == year) {
-      if (cost - current.getData().getCost() >= -0.0001) {
-        artworkList.add(current.getData()); // a match found
-      }
+    if (from > to) {
+      return count; // empty range
     }
 
-    if (current.getData().getYear() < year) // move to right child
-      artworkList.addAll(lookupAllHelper(year, cost, current.getRight()));
-
-    if (current.getData().getYear() >= year) // move to left child
-      artworkList.addAll(lookupAllHelper(year, cost, current.getLeft()));
-
-    return artworkList;
+    int middle = (from + to) >>> 1;
+    artworks[count] = sorted[middle];
+    children[count] = (byte) ((from < middle ? 1 : 0) | (middle < to ? 2 : 0));
+    count = preOrderHelper(sorted, from, middle - 1, artworks, children, count + 1);
+    return preOrderHelper(sorted, middle + 1, to, artworks, children, count);
   }
 
   /**
-   * Buy an artwork with the specified name, year and cost. In terms of BST operation, this is
-   * equivalent to finding the specific node and deleting it from the tree
+   * Helper method which writes a binary snapshot file from the nodes of a tree listed in
+   * pre-order, numbering the distinct names on the way
    * 
-   * @param name name of the artwork, artist
-   * @param year creation year of artwork
-   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
-   *           with the buying criteria
+   * @param file     path of the snapshot file, replaced if it already exists
+   * @param balanced true if the saved gallery keeps itself balanced
+   * @param artworks artworks of the nodes, in pre-order
+   * @param children whether each node has a left (1) and a right (2) child, in pre-order
+   * @throws IOException if the file cannot be written
    */
+  private static void writeSnapshot(Path file, boolean balanced, Artwork[] artworks,
+      byte[] children) throws IOException {
+
+    HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+    ArrayList<String> names = new ArrayList<String>();
+    for (Artwork artwork : artworks) {
+      if (nameIds.putIfAbsent(artwork.getName(), names.size()) == null) {
+        names.add(artwork.getName());
+      }
+    }
 
-  public void buyArtwork(String name, int year, double cost) {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
 
-    // create new artwork
-    Artwork artwork = new Artwork(name, year, cost);
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeBoolean(balanced);
+      out.writeInt(artworks.length);
+      out.writeInt(names.size());
+
+      for (String name : names) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+
+      for (int i = 0; i < artworks.length; i++) {
+        out.writeInt(nameIds.get(artworks[i].getName()));
+        out.writeInt(artworks[i].getYear());
+        out.writeDouble(artworks[i].getCost());
+        out.writeByte(children[i]);
+      }
+    }
 
-    root = buyArtworkHelper(artwork, root);
-    size--;
   }
 
   /**
-   * Recursive helper method to buy artwork given the name, year and cost. In terms of BST
-   * operation, this is equivalent to finding the specific node and deleting it from the tree
+   * Loads a gallery from a binary snapshot file written by save(). The file is mapped in memory
+   * rather than read through a stream, and the tree is linked back in a single pass over the
+   * pre-order records, so the tree is restored with its exact shape in linear time, without
+   * comparing any artworks. The secondary indexes by cost and by name are sorted maps, however,
+   * and every artwork is inserted into them, so loading takes O(n log n) time overall (times the
+   * number of words of a name for the name index). Artworks with the same name share a single
+   * String instance.
    * 
-   * @param target  a reference to a Artwork we are searching to remove in the BST rooted at
-   *                current.
-   * @param current "root" of the subtree we are checking whether it contains a match to target.
-   * @return the new "root" of the subtree we are checking after trying to remove target
-   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
-   *           with the buying criteria in the BST rooted at current
+   * @param file path of the snapshot file
+   * @return a new gallery storing the artworks of the snapshot, in the same mode and with the same
+   *         shape as the saved gallery
+   * @throws IOException          if the file cannot be read, or is not a valid snapshot
+   * @throws NullPointerException if file is null
    */
-  protected static BSTNode<Artwork> buyArtworkHelper(Artwork target, BSTNode<Artwork> current) {
+  public static ArtGallery load(Path file) throws IOException {
 
-    if (current == null)
-      throw new NoSuchElementException("No match found");
+    if (file == null) {
+      throw new NullPointerException("Path is null");
+    }
 
-    if (current.getData().equals(target)) { // matched found
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
 
-      if (current.getLeft() == null) {
-        if (current.getRight() == null) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
 
-          current = null; // case1: the node doesn't have child
-          return null; // new root is null
+      if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+        throw new IOException("Not a gallery snapshot");
+      }
+      ArtGallery gallery = new ArtGallery(buffer.get() != 0);
+      int count = buffer.getInt();
+
+      String[] names = new String[buffer.getInt()];
+      for (int i = 0; i < names.length; i++) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        names[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
 
-        } else {
+      // each record is the left child of the previous node if it has one, otherwise the right
+      // child of the last node whose right child is still missing
+      GalleryNode[] nodes = new GalleryNode[count];
+      ArrayDeque<GalleryNode> missingRight = new ArrayDeque<GalleryNode>();
+      GalleryNode missingLeft = null;
+
+      for (int i = 0; i < count; i++) {
+
+        Artwork artwork = new Artwork(names[buffer.getInt()], buffer.getInt(), buffer.getDouble());
+        byte children = buffer.get();
+        GalleryNode node = new GalleryNode(artwork);
+
+        if (i > 0) {
+          if (missingLeft != null) {
+            missingLeft.setLeft(node);
+          } else if (!missingRight.isEmpty()) {
+            missingRight.pop().setRight(node);
+          } else {
+            throw new IOException("Corrupted gallery snapshot");
+          }
+        }
 
-          // case2: the node only have right one child
+        missingLeft = (children & 1) != 0 ? node : null;
+        if ((children & 2) != 0) {
+          missingRight.push(node);
+        }
 
-          return current.getRight();
+        if (!gallery.index.add(artwork)) {
+          throw new IOException("Corrupted gallery snapshot");
         }
-      } else if (current.getRight() == null) {
-        // case3: the node only have left child
-        return current.getLeft();
+        gallery.costIndex.add(artwork);
+        gallery.nameIndex.add(artwork);
+        nodes[i] = node;
+      }
 
+      if (missingLeft != null || !missingRight.isEmpty()) {
+        throw new IOException("Corrupted gallery snapshot");
+      }
 
-      } else { // case4: the current node have two children
-        BSTNode<Artwork> successor = new BSTNode<Artwork>(getSuccessor(current));
-        buyArtworkHelper(successor.getData(), current);
-        successor.setLeft(current.getLeft());
-        successor.setRight(current.getRight());
-        return successor;
+      // children come after their parent in pre-order, so they are updated first
+      for (int i = count - 1; i >= 0; i--) {
+        nodes[i].update();
       }
 
-    } else if (current.getData().compareTo(target) < 0) { // search right
-      current.setRight(buyArtworkHelper(target, current.getRight()));
-    } else if (current.getData().compareTo(target) > 0) { // search left
-      current.setLeft(buyArtworkHelper(target, current.getLeft()));
+      gallery.root = count > 0 ? nodes[0] : null;
+      gallery.size = count;
+      return gallery;
+
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+        | IllegalArgumentException e) {
+      throw new IOException("Corrupted gallery snapshot", e);
     }
 
-    return current;
   }
 
   /**
-   * Helper method to find the successor of a node while performing a delete operation (buyArtwork)
-   * The successor is defined as the smallest key in the right subtree. We assume by default that
-   * node is not
+   * Returns the height of this BST, counting the number of NODES from root to the deepest leaf.
+   * Every node keeps the height of its subtree up to date, so this is a constant time read.
    * 
-   * @param node node whose successor is to be found in the tree
-   * @return return the key of the successor node
+   * @return the height of this Binary Search Tree
    */
+  public int height() {
 
-  protected static Artwork getSuccessor(BSTNode<Artwork> node) {
+    return GalleryNode.height(this.root);
 
-    // it has only right child which does not have left child
-    if (node.getRight().getLeft() == null)
-      return node.getRight().getData();
+  }
 
-    // it has right child which has left child
-    node = node.getRight();
-    while (node.getLeft() != null) {
-      node = node.getLeft();
+  /**
+   * Returns the height of the subtree rooted at the node storing a given artwork, counting the
+   * number of nodes from that node to the deepest leaf of its subtree. The node is searched the
+   * same way as in lookup(), even if its cost differs from the cost of the stored artwork.
+   * 
+   * @param artwork artwork at the root of the subtree
+   * @return the height of the subtree rooted at artwork, or 0 if there is no match with artwork in
+   *         this gallery
+   * @throws NullPointerException if artwork is null
+   */
+  public int height(Artwork artwork) {
+
+    if (artwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+
+    // navigate with the full key of the stored match
+    artwork = index.get(artwork.getName(), artwork.getYear());
+    if (artwork == null) {
+      return 0;
+    }
+
+    GalleryNode current = this.root;
+
+    while (current != null && !artwork.equals(current.getData())) {
+      if (current.getData().compareTo(artwork) < 0) {
+        current = current.getRight();
+      } else {
+        current = current.getLeft();
+      }
+    }
+
+    return GalleryNode.height(current);
+
+  }
+
+  /**
+   * Helper method that computes the height of the subtree rooted at current counting the number of
+   * nodes and NOT the number of edges from current to the deepest leaf. The subtree is traversed
+   * level by level and the number of levels is returned, so unlike height() this does not rely on
+   * the heights stored in the nodes and can be used to check them.
+   * 
+   * @param current pointer to the current BSTNode within a ArtworkGallery (root of a subtree)
+   * @return height of the subtree rooted at current
+   */
+  protected static int heightHelper(BSTNode<Artwork> current) {
+
+    int height = 0;
+    ArrayDeque<BSTNode<Artwork>> level = new ArrayDeque<BSTNode<Artwork>>();
+    level.add(current);
+
+    while (!level.isEmpty()) {
+
+      height++; // one more level
+
+      // replace the nodes of this level by their children
+      for (int count = level.size(); count > 0; count--) {
+        BSTNode<Artwork> node = level.poll();
+        if (node.getLeft() != null) {
+          level.add(node.getLeft());
+        }
+        if (node.getRight() != null) {
+          level.add(node.getRight());
+        }
+      }
+    }
+
+    return height;
+
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   * 
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost. If no artwork satisfies the lookup query, this method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+
+    return lookupAll(year, cost, new ArrayList<Artwork>());
+
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value, and adds
+   * them to a given collection. Reusing the same collection across calls avoids allocating a new
+   * list for every query.
+   * 
+   * @param <C>    type of the collection receiving the matches
+   * @param year   creation year of artwork
+   * @param cost   the maximum cost we would like to search for a artwork
+   * @param result collection to which every matching artwork is added
+   * @return result, after all the artwork objects whose year equals our lookup year key and
+   *         maximum cost have been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupAll(int year, double cost, C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    lookupAllHelper(year, cost, this.root, result);
+    return result;
+
+  }
+
+  /**
+   * Search lazily for all artwork objects created on a given year and have a maximum cost value.
+   * The tree is only traversed as the returned stream is consumed, so a short-circuiting operation
+   * such as findFirst() or limit() stops the search early.
+   * 
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a sequential stream of all the artwork objects whose year equals our lookup year key
+   *         and maximum cost, in the same order as the list returned by lookupAll()
+   */
+  public Stream<Artwork> lookupAllStream(int year, double cost) {
+
+    Iterator<Artwork> iterator = new LookupAllIterator(year, cost, this.root);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+
+  }
+
+  /**
+   * Returns an iterator over all the artworks of this gallery in increasing order with respect to
+   * the result of Artwork.compareTo() method (year, cost, name). The tree is walked lazily, keeping
+   * only the path to the next artwork, so the iterator uses O(height) memory. This gallery must
+   * not be modified while the iterator is in use.
+   * 
+   * @return an iterator over the artworks of this gallery in increasing order
+   */
+  @Override
+  public Iterator<Artwork> iterator() {
+
+    return new InOrderIterator(this.root, Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+
+  }
+
+  /**
+   * Returns an iterator over all the artworks of this gallery in decreasing order with respect to
+   * the result of Artwork.compareTo() method, starting from the best artwork. Like iterator(), it
+   * walks the tree lazily with O(height) memory.
+   * 
+   * @return an iterator over the artworks of this gallery in decreasing order
+   */
+  public Iterator<Artwork> descendingIterator() {
+
+    return new InOrderIterator(this.root, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+
+  }
+
+  /**
+   * Returns an iterator over the artworks of this gallery created between two years, in
+   * increasing order with respect to the result of Artwork.compareTo() method. Subtrees outside of
+   * the range are never entered, so iterating over k artworks takes O(height + k) time.
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return an iterator over the artworks of the range in increasing order
+   */
+  public Iterator<Artwork> iterator(int fromYear, int toYear) {
+
+    return new InOrderIterator(this.root, fromYear, toYear, false);
+
+  }
+
+  /**
+   * Returns a spliterator over all the artworks of this gallery in increasing order. It covers a
+   * range of ranks, and splits it at its middle rank, which is reached from the root in O(height)
+   * time thanks to the subtree sizes stored in the nodes. A parallel stream therefore divides the
+   * tree into subtrees of equal sizes without copying it first.
+   * 
+   * @return a sized spliterator over the artworks of this gallery
+   */
+  @Override
+  public Spliterator<Artwork> spliterator() {
+
+    return new RankSpliterator(this.root, 0, this.size);
+
+  }
+
+  /**
+   * Returns a sequential stream of all the artworks of this gallery in increasing order. Calling
+   * parallel() on it splits the tree as spliterator() does.
+   * 
+   * @return a stream of the artworks of this gallery
+   */
+  public Stream<Artwork> stream() {
+
+    return StreamSupport.stream(spliterator(), false);
+
+  }
+
+  /**
+   * Computes a summary of all the artworks of this gallery in parallel. The tree is divided by the
+   * spliterator of this gallery into ranges of equal sizes, which are accumulated by the tasks of
+   * the common ForkJoinPool and combined in increasing order, so the result is the same as a
+   * sequential collection whatever the shape of the tree.
+   * 
+   * @param <A>       type of the intermediate accumulation of collector
+   * @param <R>       type of the summary
+   * @param collector collector summarizing the artworks
+   * @return the summary of all the artworks of this gallery
+   * @throws NullPointerException if collector is null
+   */
+  public <A, R> R aggregate(Collector<? super Artwork, A, R> collector) {
+
+    if (collector == null) {
+      throw new NullPointerException("Collector is null");
+    }
+
+    return stream().parallel().collect(collector);
+
+  }
+
+  /**
+   * Computes the total value of this gallery, that is the sum of the costs of its artworks, in
+   * parallel
+   * 
+   * @return the total cost of the artworks of this gallery, or 0 if it is empty
+   */
+  public double totalValue() {
+
+    return stream().parallel().mapToDouble(Artwork::getCost).sum();
+
+  }
+
+  /**
+   * Computes in parallel the statistics of the costs of the artworks created each year (number of
+   * artworks, total, minimum, average and maximum cost)
+   * 
+   * @return a map from every year of creation of an artwork of this gallery to the statistics of
+   *         the costs of the artworks of that year, sorted by year
+   */
+  public TreeMap<Integer, DoubleSummaryStatistics> statsByYear() {
+
+    return aggregate(Collectors.groupingBy(Artwork::getYear, TreeMap::new,
+        Collectors.summarizingDouble(Artwork::getCost)));
+
+  }
+
+  /**
+   * Computes in parallel a histogram of the costs of the artworks for every group of consecutive
+   * years, such as decades. Groups start at the multiples of yearsPerGroup, and the cost buckets of
+   * a group start at the multiples of bucketWidth.
+   * 
+   * @param yearsPerGroup number of years of each group, 10 for decades
+   * @param bucketWidth   width of each cost bucket
+   * @return a map from the first year of every group containing an artwork to the histogram of the
+   *         costs of that group, which maps the lower bound of every non-empty bucket to its number
+   *         of artworks. Both are sorted in increasing order
+   * @throws IllegalArgumentException if yearsPerGroup or bucketWidth is not positive
+   */
+  public TreeMap<Integer, TreeMap<Double, Long>> histogram(int yearsPerGroup, double bucketWidth) {
+
+    if (yearsPerGroup <= 0) {
+      throw new IllegalArgumentException("Invalid number of years. It must be positive");
+    }
+    if (!(bucketWidth > 0.0)) {
+      throw new IllegalArgumentException("Invalid bucket width. It must be positive");
+    }
+
+    return aggregate(Collectors.groupingBy(
+        artwork -> Math.floorDiv(artwork.getYear(), yearsPerGroup) * yearsPerGroup, TreeMap::new,
+        Collectors.groupingBy(artwork -> Math.floor(artwork.getCost() / bucketWidth) * bucketWidth,
+            TreeMap::new, Collectors.counting())));
+
+  }
+
+  /**
+   * Helper method to lookup the list of artworks given their year of creation and a maximum value
+   * of cost
+   * 
+   * @param year    the year we would like to search for a artwork
+   * @param cost    the maximum cost we would like to search for a artwork
+   * @param current "root" of the subtree we are looking for a match to find within it.
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost stored in the subtree rooted at current. If no artwork satisfies the lookup query,
+   *         this method returns an empty arraylist
+   */
+  protected static ArrayList<Artwork> lookupAllHelper(int year, double cost,
+      BSTNode<Artwork> current) {
+
+    ArrayList<Artwork> artworkList = new ArrayList<Artwork>();
+    lookupAllHelper(year, cost, current, artworkList);
+    return artworkList;
+  }
+
+  /**
+   * Helper method to lookup the artworks given their year of creation and a maximum value of cost,
+   * adding them to a given collection. The subtree is traversed with an explicit stack, visiting a
+   * node before its left and then its right subtree. Subtrees which cannot contain a match are
+   * never entered: the left subtree of an older artwork, the right subtree of a more recent one,
+   * and the right subtree of an artwork of the searched year which is already too expensive since
+   * artworks of the same year are ordered by cost.
+   * 
+   * @param year    the year we would like to search for a artwork
+   * @param cost    the maximum cost we would like to search for a artwork
+   * @param current "root" of the subtree we are looking for a match to find within it.
+   * @param result  collection to which every matching artwork is added
+   */
+  protected static void lookupAllHelper(int year, double cost, BSTNode<Artwork> current,
+      Collection<? super Artwork> result) {
+
+    ArrayDeque<BSTNode<Artwork>> stack = new ArrayDeque<BSTNode<Artwork>>();
+
+    while (current != null) {
+
+      Artwork artwork = current.getData();
+      BSTNode<Artwork> next;
+
+      if (artwork.getYear() < year) {
+
+        next = current.getRight(); // move to right child
+
+      } else if (artwork.getYear() > year) {
+
+        next = current.getLeft(); // move to left child
+
+      } else if (isAffordable(artwork, cost)) {
+
+        result.add(artwork); // a match found, both subtrees may contain other matches
+        if (current.getRight() != null) {
+          stack.push(current.getRight());
+        }
+        next = current.getLeft();
+
+      } else {
+
+        next = current.getLeft(); // too expensive, and so is its right subtree
+
+      }
+
+      // continue with the next node, or resume from the last subtree left behind
+      current = next != null || stack.isEmpty() ? next : stack.pop();
+    }
+  }
+
+  /**
+   * Checks whether an artwork does not exceed a maximum cost
+   * 
+   * @param artwork artwork to check
+   * @param cost    the maximum cost
+   * @return true if the cost of artwork is at most cost, false otherwise
+   */
+  protected static boolean isAffordable(Artwork artwork, double cost) {
+    return cost - artwork.getCost() >= -COST_TOLERANCE;
+  }
+
+  /**
+   * Search for all artwork objects whose cost is in a given range, whatever their year of
+   * creation. The search uses the cost index of this gallery, so it takes O(log n + k) time to
+   * find k artworks.
+   * 
+   * @param minCost the minimum cost we would like to search for a artwork
+   * @param maxCost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose cost is between minCost and maxCost, in
+   *         increasing order of cost. If no artwork satisfies the query, this method returns an
+   *         empty arraylist
+   */
+  public ArrayList<Artwork> lookupByCost(double minCost, double maxCost) {
+
+    return lookupByCost(minCost, maxCost, new ArrayList<Artwork>());
+
+  }
+
+  /**
+   * Search for all artwork objects whose cost is in a given range, whatever their year of
+   * creation, and adds them to a given collection in increasing order of cost. Both bounds are
+   * included, with the same tolerance as the maximum cost of lookupAll().
+   * 
+   * @param <C>     type of the collection receiving the matches
+   * @param minCost the minimum cost we would like to search for a artwork
+   * @param maxCost the maximum cost we would like to search for a artwork
+   * @param result  collection to which every matching artwork is added
+   * @return result, after all the artwork objects whose cost is between minCost and maxCost have
+   *         been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupByCost(double minCost, double maxCost,
+      C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    costIndex.range(minCost - COST_TOLERANCE, maxCost + COST_TOLERANCE, result);
+    return result;
+
+  }
+
+  /**
+   * Gets the cheapest artworks of this gallery, whatever their year of creation. The search uses
+   * the cost index of this gallery, so it takes O(log n + count) time.
+   * 
+   * @param count maximum number of artworks to return
+   * @return a list of the count cheapest artworks of this gallery in increasing order of cost, or
+   *         of all its artworks if it stores less than count artworks
+   * @throws IllegalArgumentException if count is negative
+   */
+  public ArrayList<Artwork> cheapest(int count) {
+
+    if (count < 0) {
+      throw new IllegalArgumentException("Invalid count. The count must not be negative");
+    }
+
+    ArrayList<Artwork> artworkList = new ArrayList<Artwork>(Math.min(count, size));
+    costIndex.cheapest(count, artworkList);
+    return artworkList;
+
+  }
+
+  /**
+   * Search for all artwork objects having a word of their name which starts with a given query,
+   * ignoring case. For example "Monet, Water Lilies" is found by the queries "Monet" and "water
+   * li".
+   * 
+   * @param query beginning of the searched words, which may span several words
+   * @return a list of all the matching artworks, in the lexical order of their matching words. If
+   *         no artwork satisfies the query, this method returns an empty arraylist
+   * @throws NullPointerException if query is null
+   */
+  public ArrayList<Artwork> searchByName(String query) {
+
+    return searchByName(query, Integer.MAX_VALUE);
+
+  }
+
+  /**
+   * Search for at most a given number of artwork objects having a word of their name which starts
+   * with a given query, ignoring case. The search uses the name index of this gallery, so it takes
+   * O(log n) time to find the first match, then stops as soon as limit matches are found, which
+   * keeps autocompletion fast however many artworks match.
+   * 
+   * @param query beginning of the searched words, which may span several words
+   * @param limit maximum number of artworks to return
+   * @return a list of the first limit matching artworks, in the lexical order of their matching
+   *         words. If no artwork satisfies the query, this method returns an empty arraylist
+   * @throws NullPointerException     if query is null
+   * @throws IllegalArgumentException if limit is negative
+   */
+  public ArrayList<Artwork> searchByName(String query, int limit) {
+
+    if (query == null) {
+      throw new NullPointerException("Query is null");
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("Invalid limit. The limit must not be negative");
+    }
+
+    return new ArrayList<Artwork>(nameIndex.search(query, limit));
+
+  }
+
+  /**
+   * Computes the rank of a given artwork, that is the number of artworks stored in this gallery
+   * which are smaller than it with respect to the result of Artwork.compareTo() method (year, cost,
+   * name). If artwork is stored in this gallery, its rank is its index (from 0) in the String
+   * representation of this gallery.
+   * 
+   * @param artwork artwork whose rank is computed, does not need to be stored in this gallery
+   * @return the number of artworks of this gallery smaller than artwork
+   * @throws NullPointerException if artwork is null
+   */
+  public int rank(Artwork artwork) {
+
+    if (artwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+
+    int rank = 0;
+    GalleryNode current = this.root;
+
+    while (current != null) {
+
+      int compare = current.getData().compareTo(artwork);
+      if (compare < 0) {
+
+        // current and its whole left subtree are smaller
+        rank += GalleryNode.size(current.getLeft()) + 1;
+        current = current.getRight();
+
+      } else if (compare > 0) {
+
+        current = current.getLeft();
+
+      } else {
+
+        rank += GalleryNode.size(current.getLeft());
+        break; // artwork found
+
+      }
+    }
+
+    return rank;
+  }
+
+  /**
+   * Selects the artwork of a given rank, that is the artwork stored at a given index (from 0) in
+   * the increasing order of this gallery with respect to the result of Artwork.compareTo() method
+   * (year, cost, name). For instance, select(0) returns the oldest, cheapest artwork and
+   * select(size() - 1) returns the same artwork as getBestArtwork().
+   * 
+   * @param index rank of the artwork to select
+   * @return the artwork of rank index in this gallery
+   * @throws IndexOutOfBoundsException if index is negative or not smaller than size()
+   */
+  public Artwork select(int index) {
+
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Invalid rank " + index + " for size " + this.size);
+    }
+
+    GalleryNode current = this.root;
+
+    while (true) {
+
+      int leftSize = GalleryNode.size(current.getLeft());
+      if (index < leftSize) {
+
+        current = current.getLeft(); // in the left subtree
+
+      } else if (index > leftSize) {
+
+        index -= leftSize + 1; // skip the left subtree and current
+        current = current.getRight();
+
+      } else {
+
+        return current.getData();
+
+      }
+    }
+  }
+
+  /**
+   * Gets the artwork of a given percentile of cost among the artworks created on a given year,
+   * using the nearest-rank method. For instance, percentile(1965, 50) returns the median-priced
+   * artwork of 1965.
+   * 
+   * @param year       creation year of artwork
+   * @param percentile percentile to compute, between 0 and 100
+   * @return the artwork of year whose cost is at the given percentile, or null if there is no
+   *         artwork of that year in this gallery
+   * @throws IllegalArgumentException if percentile is not between 0 and 100
+   */
+  public Artwork percentile(int year, double percentile) {
+
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Invalid percentile. It must be between 0 and 100");
+    }
+
+    // artworks of year are stored between these two ranks, ordered by cost
+    int first = rankOfYear(year, false);
+    int count = rankOfYear(year, true) - first;
+
+    if (count == 0) {
+      return null; // no artwork of that year
+    }
+
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return select(first + Math.max(index, 0));
+  }
+
+  /**
+   * Counts the artworks of this gallery created before a given year, or up to that year. The
+   * bound is compared inclusively rather than as the year after, which would overflow for
+   * Integer.MAX_VALUE.
+   * 
+   * @param year      creation year
+   * @param inclusive true to count the artworks created on year too
+   * @return the number of artworks stored in this gallery created strictly before year, or before
+   *         or on year if inclusive is true
+   */
+  protected int rankOfYear(int year, boolean inclusive) {
+
+    int rank = 0;
+    GalleryNode current = this.root;
+
+    while (current != null) {
+      int currentYear = current.getData().getYear();
+      if (currentYear < year || (inclusive && currentYear == year)) {
+        rank += GalleryNode.size(current.getLeft()) + 1;
+        current = current.getRight();
+      } else {
+        current = current.getLeft();
+      }
+    }
+
+    return rank;
+  }
+
+  /**
+   * Counts the artworks created between two years, in O(height) time
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the number of artworks of this gallery created between fromYear and toYear
+   */
+  public int count(int fromYear, int toYear) {
+    return aggregateRange(fromYear, toYear).count;
+  }
+
+  /**
+   * Computes the total value of the artworks created between two years. The sum is combined from
+   * the cost sums stored in the subtrees covering the range, so it takes O(height) time however
+   * many artworks the range contains.
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the total cost of the artworks created between fromYear and toYear, or 0 if there is
+   *         none
+   */
+  public double totalValue(int fromYear, int toYear) {
+    return aggregateRange(fromYear, toYear).costSum;
+  }
+
+  /**
+   * Gets the cheapest artwork created between two years, in O(height) time
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the artwork of lowest cost created between fromYear and toYear, or null if there is
+   *         none. Among artworks of the same cost, the smallest one with respect to
+   *         Artwork.compareTo() is returned
+   */
+  public Artwork getCheapestArtwork(int fromYear, int toYear) {
+    return aggregateRange(fromYear, toYear).cheapest;
+  }
+
+  /**
+   * Gets the most expensive artwork created between two years, in O(height) time. For instance,
+   * getMostExpensiveArtwork(Integer.MIN_VALUE, 1799) returns the most expensive piece created
+   * before 1800.
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the artwork of highest cost created between fromYear and toYear, or null if there is
+   *         none. Among artworks of the same cost, the largest one with respect to
+   *         Artwork.compareTo() is returned
+   */
+  public Artwork getMostExpensiveArtwork(int fromYear, int toYear) {
+    return aggregateRange(fromYear, toYear).mostExpensive;
+  }
+
+  /**
+   * Combines the aggregates of the artworks created between two years. The search goes down to
+   * the first node of the range, where the paths to both ends of the range split. Below it, every
+   * node of the range met on the path to the first year brings its right subtree as a whole, and
+   * every node of the range met on the path to the last year brings its left subtree, so at most
+   * O(height) nodes and subtrees are combined.
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the aggregates of the artworks of the range
+   */
+  private RangeAggregate aggregateRange(int fromYear, int toYear) {
+
+    RangeAggregate aggregate = new RangeAggregate();
+
+    // find the node where the paths to both ends of the range split
+    GalleryNode split = this.root;
+    while (split != null && (split.getData().getYear() < fromYear
+        || split.getData().getYear() > toYear)) {
+      split = split.getData().getYear() < fromYear ? split.getRight() : split.getLeft();
+    }
+    if (split == null) {
+      return aggregate; // empty range
+    }
+    aggregate.add(split.getData());
+
+    // path to the first year of the range
+    for (GalleryNode current = split.getLeft(); current != null;) {
+      if (current.getData().getYear() >= fromYear) {
+        aggregate.add(current.getData());
+        aggregate.add(current.getRight());
+        current = current.getLeft();
+      } else {
+        current = current.getRight();
+      }
+    }
+
+    // path to the last year of the range
+    for (GalleryNode current = split.getRight(); current != null;) {
+      if (current.getData().getYear() <= toYear) {
+        aggregate.add(current.getData());
+        aggregate.add(current.getLeft());
+        current = current.getRight();
+      } else {
+        current = current.getLeft();
+      }
+    }
+
+    return aggregate;
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost. In terms of BST operation, this is
+   * equivalent to finding the specific node and deleting it from the tree. The match is resolved in
+   * the hash index first, so the node is found from the full key of the stored artwork even if cost
+   * differs from its cost.
+   * 
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+
+  public void buyArtwork(String name, int year, double cost) {
+
+    // check the buying criteria
+    Artwork.validate(name, year, cost);
+
+    buyArtwork(name, year);
+  }
+
+  /**
+   * Buy the artwork of a given name and year. The key is resolved in the hash index without
+   * creating any object and without checking its validity: an invalid key has no match.
+   * 
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @return the bought artwork, as it was stored in this gallery
+   * @throws NullPointerException if name is null
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public Artwork buyArtwork(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    Artwork stored = index.get(name, year);
+    if (stored == null) {
+      throw new NoSuchElementException("No match found");
+    }
+
+    root = buyArtworkHelper(stored, root, balanced);
+    index.remove(stored.getName(), stored.getYear());
+    costIndex.remove(stored);
+    nameIndex.remove(stored);
+    size--;
+    return stored;
+  }
+
+  /**
+   * Helper method to buy artwork given the name, year and cost. In terms of BST operation, this is
+   * equivalent to finding the specific node and deleting it from the tree. The nodes visited on
+   * the way down to the deleted node and to its successor are kept on an explicit path so that
+   * every subtree on the way back to the root can be updated, and rebalanced with rotations in
+   * balanced mode. When the node has two children, its successor is unlinked and moved in place
+   * of the deleted node.
+   * 
+   * @param target   a reference to a Artwork we are searching to remove in the BST rooted at
+   *                 current.
+   * @param current  "root" of the subtree we are checking whether it contains a match to target.
+   * @param balanced true to rebalance the subtree after the removal
+   * @return the new "root" of the subtree we are checking after removing target
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria in the BST rooted at current
+   */
+  protected static GalleryNode buyArtworkHelper(Artwork target, GalleryNode current,
+      boolean balanced) {
+
+    if (current == null)
+      throw new NoSuchElementException("No match found");
+
+    GalleryNode[] path = new GalleryNode[current.getHeight()];
+    int depth = 0;
+
+    // search for the matching node, recording its ancestors
+    while (!current.getData().equals(target)) {
+      path[depth++] = current;
+      if (current.getData().compareTo(target) < 0) {
+        current = current.getRight(); // search right
+      } else {
+        current = current.getLeft(); // search left
+      }
+      if (current == null)
+        throw new NoSuchElementException("No match found");
+    }
+
+    GalleryNode parent = depth == 0 ? null : path[depth - 1];
+
+    if (current.getLeft() == null || current.getRight() == null) {
+
+      // zero or one child: the child takes the place of current
+      GalleryNode child = current.getLeft() == null ? current.getRight() : current.getLeft();
+      if (parent == null) {
+        return child; // the root was deleted, its only subtree is left unchanged
+      }
+      replaceChild(parent, current, child);
+      return retrace(path, depth, balanced);
+
+    }
+
+    // two children: record the path down to the successor (smallest key in the right subtree)
+    int position = depth++; // slot of the deleted node, taken over by its successor
+    GalleryNode successor = current.getRight();
+    while (successor.getLeft() != null) {
+      path[depth++] = successor;
+      successor = successor.getLeft();
+    }
+
+    // unlink the successor and move it in place of current
+    if (depth == position + 1) {
+      current.setRight(successor.getRight());
+    } else {
+      path[depth - 1].setLeft(successor.getRight());
+    }
+    successor.setLeft(current.getLeft());
+    successor.setRight(current.getRight());
+    path[position] = successor;
+    if (parent != null) {
+      replaceChild(parent, current, successor);
+    }
+
+    return retrace(path, depth, balanced);
+  }
+
+  /**
+   * Buy a batch of artworks, as in end-of-auction settlement. Every artwork is resolved in the
+   * hash index from its name and year, then all the matches are removed together: one at a time
+   * when they are few, otherwise in a single linear pass which rebuilds the tree with a minimum
+   * height from the remaining nodes. Unlike buyArtwork(), a missing artwork does not stop the
+   * batch, it is reported in the returned list.
+   * 
+   * @param artworks artworks to buy, matched by name and year
+   * @return a list of the artworks of the batch which had no match in this gallery, in the order of
+   *         the batch. An artwork listed twice in the batch is bought once and reported missing
+   *         the second time
+   * @throws NullPointerException if artworks or any of its elements is null
+   */
+  public ArrayList<Artwork> buyAll(Collection<Artwork> artworks) {
+
+    if (artworks == null) {
+      throw new NullPointerException("Artwork collection is null");
+    }
+    for (Artwork artwork : artworks) {
+      if (artwork == null) {
+        throw new NullPointerException("Artwork is null");
+      }
+    }
+
+    ArrayList<Artwork> missing = new ArrayList<Artwork>();
+    ArrayList<Artwork> bought = new ArrayList<Artwork>();
+
+    for (Artwork artwork : artworks) {
+      Artwork stored = index.remove(artwork.getName(), artwork.getYear());
+      if (stored == null) {
+        missing.add(artwork); // no match, or already bought in this batch
+      } else {
+        bought.add(stored);
+      }
+    }
+
+    removeAll(bought);
+    return missing;
+  }
+
+  /**
+   * Removes all the artworks created between two years from this gallery. The artworks of the range
+   * are listed in O(log n + k) time, then removed together as in buyAll().
+   * 
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return a list of the removed artworks, sorted in increasing order with respect to the result
+   *         of Artwork.compareTo() method (year, cost, name). If fromYear is after toYear, nothing
+   *         is removed and this method returns an empty arraylist
+   */
+  public ArrayList<Artwork> removeRange(int fromYear, int toYear) {
+
+    ArrayList<Artwork> removed = new ArrayList<Artwork>();
+    if (fromYear > toYear) {
+      return removed; // empty range
+    }
+
+    // in-order traversal of the range with an explicit stack
+    ArrayDeque<GalleryNode> stack = new ArrayDeque<GalleryNode>();
+    GalleryNode current = this.root;
+    while (current != null || !stack.isEmpty()) {
+      while (current != null) {
+        if (current.getData().getYear() < fromYear) {
+          current = current.getRight(); // current and its left subtree are before the range
+        } else {
+          stack.push(current);
+          current = current.getLeft();
+        }
+      }
+      current = stack.pop();
+      if (current.getData().getYear() > toYear) {
+        break; // all the following artworks are after the range
+      }
+      removed.add(current.getData());
+      current = current.getRight();
+    }
+
+    for (Artwork artwork : removed) {
+      index.remove(artwork.getName(), artwork.getYear());
+    }
+
+    removeAll(removed);
+    return removed;
+  }
+
+  /**
+   * Removes from the tree and from the secondary indexes a batch of stored artworks which were
+   * already removed from the hash index. When removing them one at a time would cost more than a
+   * linear pass over the tree, that is when k log(n) exceeds n, the remaining nodes are collected
+   * in order instead and linked again into a tree of minimum height.
+   * 
+   * @param removed stored artworks to remove, without duplicates
+   */
+  private void removeAll(ArrayList<Artwork> removed) {
+
+    for (Artwork artwork : removed) {
+      costIndex.remove(artwork);
+      nameIndex.remove(artwork);
+    }
+
+    int log = 32 - Integer.numberOfLeadingZeros(this.size);
+    if ((long) removed.size() * log <= this.size) {
+
+      for (Artwork artwork : removed) {
+        this.root = buyArtworkHelper(artwork, this.root, this.balanced);
+      }
+
+    } else {
+
+      // a node is kept if its artwork is still the one indexed under its name and year
+      GalleryNode[] kept = new GalleryNode[this.size - removed.size()];
+      int count = 0;
+
+      ArrayDeque<GalleryNode> stack = new ArrayDeque<GalleryNode>();
+      GalleryNode current = this.root;
+      while (current != null || !stack.isEmpty()) {
+        while (current != null) {
+          stack.push(current);
+          current = current.getLeft();
+        }
+        current = stack.pop();
+        Artwork artwork = current.getData();
+        if (index.get(artwork.getName(), artwork.getYear()) == artwork) {
+          kept[count++] = current;
+        }
+        current = current.getRight();
+      }
+
+      this.root = relinkHelper(kept, 0, count - 1);
+
+    }
+
+    this.size -= removed.size();
+  }
+
+  /**
+   * Recursive helper method which links a range of nodes sorted in increasing order into a
+   * minimum-height subtree rooted at the middle node of the range, reusing the nodes themselves
+   * 
+   * @param nodes nodes sorted in strictly increasing order of their artworks
+   * @param from  index of the first node of the range
+   * @param to    index of the last node of the range
+   * @return the "root" of the new subtree, or null if the range is empty
+   */
+  protected static GalleryNode relinkHelper(GalleryNode[] nodes, int from, int to) {
+
+    if (from > to) {
+      return null; // empty range
+    }
+
+    int middle = (from + to) >>> 1;
+    GalleryNode node = nodes[middle];
+    node.setLeft(relinkHelper(nodes, from, middle - 1));
+    node.setRight(relinkHelper(nodes, middle + 1, to));
+    node.update();
+    return node;
+  }
+
+  /**
+   * Helper method which walks back up a path of nodes recorded from the root of a subtree down to
+   * the parent of a modified node, updating each of them and linking every updated subtree back to
+   * its parent. In balanced mode, every subtree on the path is also rebalanced.
+   * 
+   * @param path     nodes visited from the "root" of the subtree (path[0]) down to the parent of
+   *                 the modified node (path[depth - 1])
+   * @param depth    number of nodes stored in path
+   * @param balanced true to rebalance the subtrees on the path
+   * @return the new "root" of the updated subtree
+   */
+  protected static GalleryNode retrace(GalleryNode[] path, int depth, boolean balanced) {
+
+    GalleryNode subtree = null;
+
+    for (int i = depth - 1; i >= 0; i--) {
+      if (balanced) {
+        subtree = rebalance(path[i]);
+      } else {
+        subtree = path[i];
+        subtree.update();
+      }
+      if (i > 0 && subtree != path[i]) {
+        replaceChild(path[i - 1], path[i], subtree);
+      }
+    }
+
+    return subtree;
+  }
+
+  /**
+   * Helper method which replaces a child of a given parent node by another node
+   * 
+   * @param parent   node whose child is replaced
+   * @param oldChild current left or right child of parent
+   * @param newChild node to put in place of oldChild, can be null
+   */
+  protected static void replaceChild(GalleryNode parent, GalleryNode oldChild,
+      GalleryNode newChild) {
+
+    if (parent.getLeft() == oldChild) {
+      parent.setLeft(newChild);
+    } else {
+      parent.setRight(newChild);
+    }
+  }
+
+  /**
+   * Helper method which restores the AVL property at node, assuming that both of its subtrees are
+   * already balanced and that their heights differ by at most two.
+   * 
+   * @param node "root" of the subtree to rebalance
+   * @return the new "root" of the rebalanced subtree
+   */
+  protected static GalleryNode rebalance(GalleryNode node) {
+
+    node.update();
+    int balance = node.getBalance();
+
+    if (balance > 1) { // left heavy
+
+      if (node.getLeft().getBalance() < 0) {
+        node.setLeft(rotateLeft(node.getLeft())); // left-right case
+      }
+      return rotateRight(node);
+
+    } else if (balance < -1) { // right heavy
+
+      if (node.getRight().getBalance() > 0) {
+        node.setRight(rotateRight(node.getRight())); // right-left case
+      }
+      return rotateLeft(node);
+
+    }
+
+    return node; // already balanced
+  }
+
+  /**
+   * Rotates the subtree rooted at node to the left, its right child becoming the new root
+   * 
+   * @param node "root" of the subtree to rotate, must have a right child
+   * @return the new "root" of the rotated subtree
+   */
+  protected static GalleryNode rotateLeft(GalleryNode node) {
+
+    GalleryNode pivot = node.getRight();
+    node.setRight(pivot.getLeft());
+    pivot.setLeft(node);
+    node.update();
+    pivot.update();
+    return pivot;
+  }
+
+  /**
+   * Rotates the subtree rooted at node to the right, its left child becoming the new root
+   * 
+   * @param node "root" of the subtree to rotate, must have a left child
+   * @return the new "root" of the rotated subtree
+   */
+  protected static GalleryNode rotateRight(GalleryNode node) {
+
+    GalleryNode pivot = node.getLeft();
+    node.setLeft(pivot.getRight());
+    pivot.setRight(node);
+    node.update();
+    pivot.update();
+    return pivot;
+  }
+
+  /**
+   * Helper method to find the successor of a node while performing a delete operation (buyArtwork)
+   * The successor is defined as the smallest key in the right subtree. We assume by default that
+   * node is not
+   * 
+   * @param node node whose successor is to be found in the tree
+   * @return return the key of the successor node
+   */
+
+  protected static Artwork getSuccessor(BSTNode<Artwork> node) {
+
+    // it has only right child which does not have left child
+    if (node.getRight().getLeft() == null)
+      return node.getRight().getData();
+
+    // it has right child which has left child
+    node = node.getRight();
+    while (node.getLeft() != null) {
+      node = node.getLeft();
+    }
+    Artwork data = node.getData();
+    node = null;
+    return data;
+  }
+
+  /**
+   * This class implements a lazy iterator over the artworks of a given year whose cost does not
+   * exceed a maximum value. It performs the same pruned traversal as lookupAllHelper(), one match
+   * at a time.
+   */
+  private static class LookupAllIterator implements Iterator<Artwork> {
+
+    private final int year; // searched year of creation
+    private final double cost; // maximum cost of the matches
+    private final ArrayDeque<BSTNode<Artwork>> stack; // subtrees left to search
+    private BSTNode<Artwork> current; // next subtree to search, null when only the stack is left
+    private Artwork next; // next match to return, null if not found yet
+
+    /**
+     * Creates an iterator over the matches stored in the subtree rooted at root
+     * 
+     * @param year year of creation of the matches
+     * @param cost maximum cost of the matches
+     * @param root "root" of the subtree to search
+     */
+    private LookupAllIterator(int year, double cost, BSTNode<Artwork> root) {
+      this.year = year;
+      this.cost = cost;
+      this.stack = new ArrayDeque<BSTNode<Artwork>>();
+      this.current = root;
+    }
+
+    /**
+     * Checks whether there is another match
+     * 
+     * @return true if there is another match, false otherwise
+     */
+    @Override
+    public boolean hasNext() {
+
+      while (next == null && current != null) {
+
+        Artwork artwork = current.getData();
+        BSTNode<Artwork> child;
+
+        if (artwork.getYear() < year) {
+          child = current.getRight();
+        } else if (artwork.getYear() > year) {
+          child = current.getLeft();
+        } else if (isAffordable(artwork, cost)) {
+          next = artwork;
+          if (current.getRight() != null) {
+            stack.push(current.getRight());
+          }
+          child = current.getLeft();
+        } else {
+          child = current.getLeft();
+        }
+
+        current = child != null || stack.isEmpty() ? child : stack.pop();
+      }
+
+      return next != null;
+    }
+
+    /**
+     * Returns the next match
+     * 
+     * @return the next artwork matching the search criteria
+     * @throws NoSuchElementException if there is no more match
+     */
+    @Override
+    public Artwork next() {
+
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more artwork");
+      }
+
+      Artwork artwork = next;
+      next = null;
+      return artwork;
+    }
+  }
+
+  /**
+   * This class implements a lazy iterator over the artworks created in a range of years, in
+   * increasing or decreasing order. Its stack holds the nodes on the path to the next artwork
+   * whose own artwork has not been returned yet, so it never holds more than height nodes.
+   */
+  private static class InOrderIterator implements Iterator<Artwork> {
+
+    private final int fromYear; // first year of the range
+    private final int toYear; // last year of the range
+    private final boolean descending; // true to iterate in decreasing order
+    private final ArrayDeque<GalleryNode> stack; // nodes whose artwork is still to return
+
+    /**
+     * Creates an iterator over the artworks of a subtree created in a range of years
+     * 
+     * @param root       root of the subtree to iterate over
+     * @param fromYear   first year of the range, included
+     * @param toYear     last year of the range, included
+     * @param descending true to iterate in decreasing order, false for increasing order
+     */
+    private InOrderIterator(GalleryNode root, int fromYear, int toYear, boolean descending) {
+      this.fromYear = fromYear;
+      this.toYear = toYear;
+      this.descending = descending;
+      this.stack = new ArrayDeque<GalleryNode>();
+      descend(root);
+    }
+
+    /**
+     * Pushes the nodes of the range met on the way from a node to the first artwork of its subtree
+     * in the order of iteration, skipping the nodes and subtrees outside of the range
+     * 
+     * @param current root of the subtree
+     */
+    private void descend(GalleryNode current) {
+
+      while (current != null) {
+        int year = current.getData().getYear();
+        if (year < fromYear) {
+          current = current.getRight(); // current and its left subtree are before the range
+        } else if (year > toYear) {
+          current = current.getLeft(); // current and its right subtree are after the range
+        } else {
+          stack.push(current);
+          current = descending ? current.getRight() : current.getLeft();
+        }
+      }
+    }
+
+    /**
+     * Checks whether there is another artwork in the range
+     * 
+     * @return true if there is another artwork, false otherwise
+     */
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    /**
+     * Returns the next artwork in the range
+     * 
+     * @return the next artwork in the order of iteration
+     * @throws NoSuchElementException if there is no more artwork
+     */
+    @Override
+    public Artwork next() {
+
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException("No more artwork");
+      }
+
+      GalleryNode node = stack.pop();
+      descend(descending ? node.getLeft() : node.getRight());
+      return node.getData();
+    }
+  }
+
+  /**
+   * This class implements a spliterator over the artworks of a subtree whose ranks (in increasing
+   * order) are in a range. The path to the first artwork is only computed when the traversal
+   * starts, so splitting is O(1) and a split-off spliterator never traverses anything before it is
+   * used.
+   */
+  private static class RankSpliterator implements Spliterator<Artwork> {
+
+    private final GalleryNode root; // root of the subtree
+    private int index; // rank of the next artwork
+    private final int fence; // rank following the last artwork of the range
+    private ArrayDeque<GalleryNode> stack; // nodes whose artwork is still to return, or null
+
+    /**
+     * Creates a spliterator over the artworks of a subtree whose ranks are in a range
+     * 
+     * @param root  root of the subtree
+     * @param index rank of the first artwork of the range
+     * @param fence rank following the last artwork of the range
+     */
+    private RankSpliterator(GalleryNode root, int index, int fence) {
+      this.root = root;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    /**
+     * Computes the path from the root to the artwork of rank index. Only the nodes whose artwork
+     * comes at or after that rank are pushed, the deepest one on top.
+     */
+    private void seek() {
+
+      stack = new ArrayDeque<GalleryNode>();
+      GalleryNode current = root;
+      int rank = index;
+
+      while (current != null) {
+        int leftSize = GalleryNode.size(current.getLeft());
+        if (rank < leftSize) {
+          stack.push(current);
+          current = current.getLeft();
+        } else if (rank > leftSize) {
+          rank -= leftSize + 1;
+          current = current.getRight();
+        } else {
+          stack.push(current);
+          return; // found
+        }
+      }
+    }
+
+    /**
+     * Performs an action on the next artwork, if any
+     * 
+     * @param action action to perform
+     * @return true if an artwork was left, false otherwise
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super Artwork> action) {
+
+      if (index >= fence) {
+        return false;
+      }
+      if (stack == null) {
+        seek();
+      }
+
+      GalleryNode node = stack.pop();
+      for (GalleryNode current = node.getRight(); current != null; current = current.getLeft()) {
+        stack.push(current);
+      }
+      index++;
+      action.accept(node.getData());
+      return true;
+    }
+
+    /**
+     * Splits off the first half of the remaining range
+     * 
+     * @return a spliterator over the first half of the remaining artworks, or null if there are
+     *         too few of them to split
+     */
+    @Override
+    public Spliterator<Artwork> trySplit() {
+
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null; // at most one artwork left
+      }
+
+      RankSpliterator prefix = new RankSpliterator(root, index, middle);
+      prefix.stack = this.stack; // the traversal in progress, if any, goes on in the prefix
+      this.stack = null;
+      this.index = middle;
+      return prefix;
+    }
+
+    /**
+     * Returns the exact number of remaining artworks
+     * 
+     * @return the number of artworks left in the range
+     */
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    /**
+     * Returns the characteristics of this spliterator
+     * 
+     * @return the characteristics of a sorted, sized and subsized sequence of distinct artworks
+     */
+    @Override
+    public int characteristics() {
+      return ORDERED | DISTINCT | SORTED | NONNULL | SIZED | SUBSIZED;
+    }
+
+    /**
+     * Returns the comparator sorting the artworks, which is their natural order
+     * 
+     * @return null, since the artworks are sorted with respect to Artwork.compareTo()
+     */
+    @Override
+    public Comparator<? super Artwork> getComparator() {
+      return null;
+    }
+  }
+
+  /**
+   * This class accumulates the aggregates of the artworks of a range, combined from single
+   * artworks and from the aggregates stored in whole subtrees.
+   */
+  private static class RangeAggregate {
+
+    private int count; // number of artworks
+    private double costSum; // total cost of the artworks
+    private Artwork cheapest; // artwork of lowest cost, null if there is none
+    private Artwork mostExpensive; // artwork of highest cost, null if there is none
+
+    /**
+     * Adds a single artwork to this aggregate
+     * 
+     * @param artwork artwork to add
+     */
+    private void add(Artwork artwork) {
+      count++;
+      costSum += artwork.getCost();
+      cheapest = GalleryNode.cheaper(cheapest, artwork);
+      mostExpensive = GalleryNode.moreExpensive(mostExpensive, artwork);
+    }
+
+    /**
+     * Adds all the artworks of a subtree to this aggregate, from the aggregates stored in its root
+     * 
+     * @param subtree root of the subtree, can be null
+     */
+    private void add(GalleryNode subtree) {
+      count += GalleryNode.size(subtree);
+      costSum += GalleryNode.costSum(subtree);
+      cheapest = GalleryNode.cheaper(cheapest, GalleryNode.cheapest(subtree));
+      mostExpensive = GalleryNode.moreExpensive(mostExpensive, GalleryNode.mostExpensive(subtree));
     }
-    Artwork data = node.getData();
-    node = null;
-    return data;
   }
 
 }
@@ -0,0 +1,766 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ArtGalleryBenchmark.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * This class measures the performance of the operations of the artwork galleries. Every operation
+ * (addArtwork, lookup, lookupAll, buyArtwork, getBestArtwork, height and toString) is run on every
+ * gallery variant for several catalog sizes and several key distributions: random keys, keys
+ * sorted by year (like the auction house exports) and keys whose years follow a skewed (Zipfian)
+ * distribution. Each measurement reports the throughput, the latency percentiles of single calls,
+ * the number of bytes allocated per call and the garbage collections which happened meanwhile.
+ *
+ * Usage: java ArtGalleryBenchmark [sizes=1000,10000,...] [distributions=RANDOM,YEAR_SORTED,...]
+ * [variants=unbalanced,balanced,...] [rounds=5]. By default, sizes go from 1e3 to 1e6; the 1e7
+ * size must be requested explicitly and needs a heap of several gigabytes. The B+tree variant
+ * takes its fanout in its name, such as bplus-16; plain bplus uses the default fanout.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class ArtGalleryBenchmark {
+
+  /**
+   * Distributions of the keys of the artworks added to the benchmarked galleries
+   */
+  enum Distribution {
+    RANDOM, // years and costs drawn uniformly, added in random order
+    YEAR_SORTED, // keys added in increasing order of year, then cost
+    ZIPFIAN // years drawn from a Zipfian distribution, a few years hold most artworks
+  }
+
+  /**
+   * Adapter giving a uniform access to the operations of a gallery variant
+   */
+  abstract static class Variant {
+
+    /**
+     * Gets the name of this variant
+     *
+     * @return the name of this variant, as printed in the report
+     */
+    abstract String name();
+
+    /**
+     * Adds an artwork to the benchmarked gallery
+     *
+     * @param artwork artwork to add
+     * @return true if the artwork was added
+     */
+    abstract boolean addArtwork(Artwork artwork);
+
+    /**
+     * Looks up an artwork in the benchmarked gallery
+     *
+     * @param artwork artwork to search
+     * @return true if there is a match
+     */
+    abstract boolean lookup(Artwork artwork);
+
+    /**
+     * Searches all the artworks of a year up to a maximum cost
+     *
+     * @param year year of creation of the matches
+     * @param cost maximum cost of the matches
+     * @return the number of matches
+     */
+    abstract int lookupAll(int year, double cost);
+
+    /**
+     * Buys an artwork from the benchmarked gallery
+     *
+     * @param artwork artwork to buy
+     */
+    abstract void buyArtwork(Artwork artwork);
+
+    /**
+     * Gets the best artwork of the benchmarked gallery
+     *
+     * @return the best artwork
+     */
+    abstract Artwork getBestArtwork();
+
+    /**
+     * Gets the height of the benchmarked gallery
+     *
+     * @return the height of the gallery
+     */
+    abstract int height();
+
+    /**
+     * Gets the String representation of the benchmarked gallery
+     *
+     * @return the String representation of the gallery
+     */
+    abstract String render();
+
+    /**
+     * Checks whether this variant degenerates into a list when artworks are added by year, in
+     * which case large year-sorted catalogs are skipped since they would take hours to build
+     *
+     * @return true if this variant does not balance itself
+     */
+    boolean isQuadraticWhenSorted() {
+      return false;
+    }
+  }
+
+  /**
+   * Variant benchmarking an ArtGallery
+   */
+  static class ArtGalleryVariant extends Variant {
+
+    private final ArtGallery gallery; // benchmarked gallery
+
+    /**
+     * Creates a variant benchmarking a new empty ArtGallery
+     *
+     * @param balanced true to benchmark the balanced mode
+     */
+    ArtGalleryVariant(boolean balanced) {
+      this.gallery = new ArtGallery(balanced);
+    }
+
+    @Override
+    String name() {
+      return gallery.isBalanced() ? "balanced" : "unbalanced";
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      return gallery.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return gallery.lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return gallery.getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return gallery.height();
+    }
+
+    @Override
+    String render() {
+      return gallery.toString();
+    }
+
+    @Override
+    boolean isQuadraticWhenSorted() {
+      return !gallery.isBalanced();
+    }
+  }
+
+  /**
+   * Variant benchmarking a PersistentArtGallery held by a LiveArtGallery, each update publishing
+   * a new version
+   */
+  static class PersistentVariant extends Variant {
+
+    private final LiveArtGallery gallery = new LiveArtGallery(); // holder of the current version
+
+    @Override
+    String name() {
+      return "persistent";
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      return gallery.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return gallery.snapshot().lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return gallery.snapshot().lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return gallery.snapshot().getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return gallery.snapshot().height();
+    }
+
+    @Override
+    String render() {
+      return gallery.toString();
+    }
+  }
+
+  /**
+   * Variant benchmarking a ConcurrentArtGallery from a single thread, which measures the cost of
+   * its lock
+   */
+  static class ConcurrentVariant extends Variant {
+
+    private final ConcurrentArtGallery gallery = new ConcurrentArtGallery(true); // benchmarked
+
+    @Override
+    String name() {
+      return "concurrent";
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      return gallery.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return gallery.lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return gallery.getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return gallery.height();
+    }
+
+    @Override
+    String render() {
+      return gallery.toString();
+    }
+  }
+
+  /**
+   * Variant benchmarking a FrozenArtGallery. Updates go to a balanced ArtGallery, which is frozen
+   * again before the next read.
+   */
+  static class FrozenVariant extends Variant {
+
+    private final ArtGallery source = new ArtGallery(true); // receives the updates
+    private FrozenArtGallery gallery; // frozen copy of source, null if out of date
+
+    /**
+     * Gets the frozen copy of the source gallery, freezing it if it changed
+     *
+     * @return the up to date frozen gallery
+     */
+    private FrozenArtGallery frozen() {
+      if (gallery == null) {
+        gallery = source.freeze();
+      }
+      return gallery;
+    }
+
+    @Override
+    String name() {
+      return "frozen";
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      gallery = null;
+      return source.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return frozen().lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return frozen().lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery = null;
+      source.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return frozen().getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return frozen().height();
+    }
+
+    @Override
+    String render() {
+      return frozen().toString();
+    }
+  }
+
+  /**
+   * Variant benchmarking an OffHeapArtGallery
+   */
+  static class OffHeapVariant extends Variant {
+
+    private final OffHeapArtGallery gallery = new OffHeapArtGallery(); // benchmarked gallery
+
+    @Override
+    String name() {
+      return "offheap";
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      return gallery.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return gallery.lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return gallery.getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return gallery.height();
+    }
+
+    @Override
+    String render() {
+      return gallery.toString();
+    }
+  }
+
+  /**
+   * Variant benchmarking a BPlusTreeArtGallery
+   */
+  static class BPlusTreeVariant extends Variant {
+
+    private final BPlusTreeArtGallery gallery; // benchmarked gallery
+
+    /**
+     * Creates a variant benchmarking a new empty BPlusTreeArtGallery
+     *
+     * @param fanout fanout of the benchmarked gallery
+     */
+    BPlusTreeVariant(int fanout) {
+      this.gallery = new BPlusTreeArtGallery(fanout);
+    }
+
+    @Override
+    String name() {
+      return gallery.getFanout() == BPlusTreeArtGallery.DEFAULT_FANOUT ? "bplus"
+          : "bplus-" + gallery.getFanout();
+    }
+
+    @Override
+    boolean addArtwork(Artwork artwork) {
+      return gallery.addArtwork(artwork);
+    }
+
+    @Override
+    boolean lookup(Artwork artwork) {
+      return gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    int lookupAll(int year, double cost) {
+      return gallery.lookupAll(year, cost).size();
+    }
+
+    @Override
+    void buyArtwork(Artwork artwork) {
+      gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+    }
+
+    @Override
+    Artwork getBestArtwork() {
+      return gallery.getBestArtwork();
+    }
+
+    @Override
+    int height() {
+      return gallery.height();
+    }
+
+    @Override
+    String render() {
+      return gallery.toString();
+    }
+  }
+
+  /**
+   * Operation whose single calls are timed
+   */
+  interface Operation {
+
+    /**
+     * Runs the i-th call of the operation
+     *
+     * @param i index of the call
+     * @return a value depending on the result of the call, so that it is not optimized away
+     */
+    long run(int i);
+  }
+
+  private static final int WARMUP_ROUNDS = 2; // rounds run before measuring
+  private static final int MAX_READ_CALLS = 200_000; // calls of a read operation per round
+  private static final int MAX_RENDER_CALLS = 20; // calls of toString per round
+  private static final int SORTED_UNBALANCED_LIMIT = 20_000; // larger sorted builds are skipped
+
+  private static long sink; // consumes the results of the operations
+
+  /**
+   * Runs the benchmarks and prints their results
+   *
+   * @param args optional settings, each as name=value: sizes, distributions, variants, rounds
+   */
+  public static void main(String[] args) {
+
+    int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+    Distribution[] distributions = Distribution.values();
+    String[] variants = {"unbalanced", "balanced", "persistent", "concurrent", "frozen",
+        "offheap", "bplus", "bplus-16"};
+    int rounds = 5;
+
+    for (String arg : args) {
+      String[] setting = arg.split("=", 2);
+      String[] values = setting.length == 2 ? setting[1].split(",") : new String[0];
+      if (setting[0].equals("sizes")) {
+        sizes = Arrays.stream(values).mapToInt(Integer::parseInt).toArray();
+      } else if (setting[0].equals("distributions")) {
+        distributions = Arrays.stream(values).map(Distribution::valueOf)
+            .toArray(Distribution[]::new);
+      } else if (setting[0].equals("variants")) {
+        variants = values;
+      } else if (setting[0].equals("rounds")) {
+        rounds = Integer.parseInt(values[0]);
+      } else {
+        throw new IllegalArgumentException("Unknown setting " + arg);
+      }
+    }
+
+    System.out.printf("%-14s %-11s %-12s %9s %14s %10s %10s %10s %10s %10s %6s %8s%n",
+        "operation", "variant", "keys", "size", "ops/s", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns",
+        "B/op", "gc", "gc ms");
+
+    for (int size : sizes) {
+      for (Distribution distribution : distributions) {
+        Artwork[] artworks = generate(size, distribution, new Random(size));
+        for (String variant : variants) {
+          benchmark(variant, artworks, distribution, rounds);
+        }
+      }
+    }
+
+    if (sink == 42) {
+      System.out.println(); // never happens, keeps the results alive
+    }
+  }
+
+  /**
+   * Creates a new empty gallery variant given its name
+   *
+   * @param name name of the variant
+   * @return a supplier of new empty galleries of that variant
+   * @throws IllegalArgumentException if there is no variant of that name
+   */
+  static Supplier<Variant> variant(String name) {
+
+    switch (name) {
+      case "unbalanced":
+        return () -> new ArtGalleryVariant(false);
+      case "balanced":
+        return () -> new ArtGalleryVariant(true);
+      case "persistent":
+        return () -> new PersistentVariant();
+      case "concurrent":
+        return () -> new ConcurrentVariant();
+      case "frozen":
+        return () -> new FrozenVariant();
+      case "offheap":
+        return () -> new OffHeapVariant();
+      case "bplus":
+        return () -> new BPlusTreeVariant(BPlusTreeArtGallery.DEFAULT_FANOUT);
+      default:
+        if (name.startsWith("bplus-")) { // B+tree of a given fanout, such as bplus-16
+          int fanout = Integer.parseInt(name.substring("bplus-".length()));
+          return () -> new BPlusTreeVariant(fanout);
+        }
+        throw new IllegalArgumentException("Unknown variant " + name);
+    }
+  }
+
+  /**
+   * Generates distinct artworks whose keys follow a given distribution, in the order in which they
+   * are added to the galleries
+   *
+   * @param size         number of artworks
+   * @param distribution distribution of the keys
+   * @param random       source of randomness
+   * @return the generated artworks
+   */
+  static Artwork[] generate(int size, Distribution distribution, Random random) {
+
+    Artwork[] artworks = new Artwork[size];
+    int years = Math.max(10, size / 10); // about ten artworks per year on average
+
+    // cumulative probabilities of the years for the Zipfian distribution (exponent 1)
+    double[] cumulative = new double[years];
+    if (distribution == Distribution.ZIPFIAN) {
+      double total = 0;
+      for (int rank = 0; rank < years; rank++) {
+        total += 1.0 / (rank + 1);
+        cumulative[rank] = total;
+      }
+      for (int rank = 0; rank < years; rank++) {
+        cumulative[rank] /= total;
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+
+      int year;
+      if (distribution == Distribution.ZIPFIAN) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        year = 1000 + Math.min(years - 1, rank < 0 ? -rank - 1 : rank);
+      } else {
+        year = 1000 + random.nextInt(years);
+      }
+
+      // the index in the name makes every artwork distinct
+      artworks[i] = new Artwork("Artist " + random.nextInt(1000) + ", Artwork " + i, year,
+          1 + random.nextInt(1_000_000));
+    }
+
+    if (distribution == Distribution.YEAR_SORTED) {
+      Arrays.sort(artworks);
+    }
+
+    return artworks;
+  }
+
+  /**
+   * Benchmarks every operation on a gallery variant and prints the results
+   *
+   * @param name         name of the variant
+   * @param artworks     artworks to add to the gallery, in order
+   * @param distribution distribution of the keys of artworks
+   * @param rounds       number of measured rounds
+   */
+  static void benchmark(String name, Artwork[] artworks, Distribution distribution, int rounds) {
+
+    Supplier<Variant> factory = variant(name);
+    if (distribution == Distribution.YEAR_SORTED && artworks.length > SORTED_UNBALANCED_LIMIT
+        && factory.get().isQuadraticWhenSorted()) {
+      System.out.printf("%-14s %-11s %-12s %9d   skipped: quadratic build%n", "*", name,
+          distribution, artworks.length);
+      return;
+    }
+
+    int size = artworks.length;
+    Artwork[] shuffled = artworks.clone();
+    shuffle(shuffled, new Random(size + 1));
+    int reads = Math.min(MAX_READ_CALLS, Math.max(size, 10_000));
+
+    // addArtwork: build a new gallery in every round
+    Variant[] gallery = new Variant[1];
+    measure("addArtwork", name, distribution, size, rounds, size,
+        () -> gallery[0] = factory.get(), i -> gallery[0].addArtwork(artworks[i]) ? 1 : 0);
+
+    Variant full = gallery[0];
+    measure("lookup", name, distribution, size, rounds, reads, null,
+        i -> full.lookup(shuffled[i % size]) ? 1 : 0);
+    measure("lookupAll", name, distribution, size, rounds, reads, null, i -> {
+      Artwork probe = shuffled[i % size];
+      return full.lookupAll(probe.getYear(), probe.getCost());
+    });
+    measure("getBestArtwork", name, distribution, size, rounds, reads, null,
+        i -> full.getBestArtwork().getYear());
+    measure("height", name, distribution, size, rounds, reads, null, i -> full.height());
+    measure("toString", name, distribution, size, rounds,
+        Math.max(1, Math.min(MAX_RENDER_CALLS, 1_000_000 / size)), null,
+        i -> full.render().length());
+
+    // buyArtwork: buy everything from a freshly built gallery in every round
+    measure("buyArtwork", name, distribution, size, rounds, size, () -> {
+      gallery[0] = factory.get();
+      for (Artwork artwork : artworks) {
+        gallery[0].addArtwork(artwork);
+      }
+    }, i -> {
+      gallery[0].buyArtwork(shuffled[i]);
+      return i;
+    });
+  }
+
+  /**
+   * Runs warm-up rounds then measured rounds of an operation, and prints the throughput, the
+   * latency percentiles, the allocation rate and the garbage collections of the measured rounds
+   *
+   * @param operation    name of the operation
+   * @param variant      name of the gallery variant
+   * @param distribution distribution of the keys
+   * @param size         size of the gallery
+   * @param rounds       number of measured rounds
+   * @param calls        number of calls of the operation per round
+   * @param setup        run before every round without being measured, can be null
+   * @param body         timed operation
+   */
+  static void measure(String operation, String variant, Distribution distribution, int size,
+      int rounds, int calls, Runnable setup, Operation body) {
+
+    long[] latencies = new long[rounds * calls];
+    long totalTime = 0;
+    long allocated = 0;
+    long[] gcBefore = null;
+
+    for (int round = -WARMUP_ROUNDS; round < rounds; round++) {
+
+      if (setup != null) {
+        setup.run();
+      }
+
+      if (round == 0) {
+        gcBefore = gcActivity();
+      }
+      long allocatedBefore = allocatedBytes();
+      long start = System.nanoTime();
+
+      for (int i = 0; i < calls; i++) {
+        long before = System.nanoTime();
+        sink += body.run(i);
+        long after = System.nanoTime();
+        if (round >= 0) {
+          latencies[round * calls + i] = after - before;
+        }
+      }
+
+      if (round >= 0) {
+        totalTime += System.nanoTime() - start;
+        allocated += allocatedBytes() - allocatedBefore;
+      }
+    }
+
+    long[] gcAfter = gcActivity();
+    Arrays.sort(latencies);
+    long count = latencies.length;
+
+    System.out.printf("%-14s %-11s %-12s %9d %14.0f %10d %10d %10d %10d %10.1f %6d %8d%n",
+        operation, variant, distribution, size, count * 1e9 / totalTime,
+        percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+        percentile(latencies, 99.9), allocated < 0 ? Double.NaN : (double) allocated / count,
+        gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+  }
+
+  /**
+   * Gets a percentile of sorted latencies with the nearest-rank method
+   *
+   * @param sorted     latencies in increasing order
+   * @param percentile percentile between 0 and 100
+   * @return the latency at that percentile
+   */
+  static long percentile(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+
+  /**
+   * Gets the number of bytes allocated so far by the current thread
+   *
+   * @return the allocated bytes, or a negative value if the JVM cannot measure them
+   */
+  static long allocatedBytes() {
+
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the number of garbage collections run so far and the time they took
+   *
+   * @return an array holding the number of collections then their accumulated time in ms
+   */
+  static long[] gcActivity() {
+
+    long[] activity = new long[2];
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      activity[0] += Math.max(0, collector.getCollectionCount());
+      activity[1] += Math.max(0, collector.getCollectionTime());
+    }
+    return activity;
+  }
+
+  /**
+   * Shuffles an array of artworks in place
+   *
+   * @param artworks artworks to shuffle
+   * @param random   source of randomness
+   */
+  static void shuffle(Artwork[] artworks, Random random) {
+    for (int i = artworks.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      Artwork swap = artworks[i];
+      artworks[i] = artworks[j];
+      artworks[j] = swap;
+    }
+  }
+
+}
@@ -3,8 +3,29 @@
 // Title: ArtGalleryTester.java
 ///////////////////////////////////////////////////////////////////////////////
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.NoSuchElementException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class checks the correctness of the implementation of the methods defined in the class
@@ -629,6 +650,1970 @@ public class ArtGalleryTester {
     return true;
   }
 
+  /**
+   * Checks the correctness of the balanced mode of ArtGallery. This test considers the following
+   * scenarios. (1) Add 1023 artworks sorted by year to a balanced gallery and check that its height
+   * stays logarithmic while an unbalanced gallery degenerates into a list. (2) Check that both
+   * galleries have the same size and the same string representation. (3) Buy every other artwork
+   * from the balanced gallery and check that its size, its content and its height remain correct.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testBalancedGallery() {
+
+    try {
+      ArtGallery balanced = new ArtGallery(true);
+      ArtGallery unbalanced = new ArtGallery();
+
+      // (1) year-sorted feed
+      for (int i = 0; i < 1023; i++) {
+        Artwork artwork = new Artwork("Piece " + i, 1000 + i, 100 + i);
+        if (!balanced.addArtwork(artwork) || !unbalanced.addArtwork(artwork)) {
+          return false;
+        }
+      }
+      if (balanced.addArtwork(new Artwork("Piece 7", 1007, 107))) {
+        return false; // duplicate
+      }
+
+      if (unbalanced.height() != 1023 || balanced.height() > 14) {
+        System.out.println(balanced.height());
+        return false;
+      }
+
+      // (2) same content
+      if (balanced.size() != 1023 || !balanced.toString().equals(unbalanced.toString())) {
+        return false;
+      }
+
+      // (3) buy every other artwork
+      for (int i = 0; i < 1023; i += 2) {
+        balanced.buyArtwork("Piece " + i, 1000 + i, 100 + i);
+      }
+      if (balanced.size() != 511 || balanced.height() > 13) {
+        System.out.println(balanced.height());
+        return false;
+      }
+      for (int i = 0; i < 1023; i++) {
+        if (balanced.lookup("Piece " + i, 1000 + i, 100 + i) != (i % 2 == 1)) {
+          return false;
+        }
+      }
+      try {
+        balanced.buyArtwork("Piece 0", 1000, 100);
+        return false; // already bought
+      } catch (NoSuchElementException e) {
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks that every operation of ArtGallery works on a degenerate (year-sorted, unbalanced)
+   * gallery deep enough to overflow the call stack of a recursive implementation.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testDeepGallery() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      int count = 20000;
+
+      for (int i = 0; i < count; i++) {
+        gallery.addArtwork(new Artwork("Piece " + i, 1000 + i, 100));
+      }
+
+      if (gallery.height() != count || gallery.size() != count) {
+        return false;
+      }
+      if (!gallery.lookup("Piece 19999", 20999, 100) || gallery.lookup("Piece 1", 20999, 100)) {
+        return false;
+      }
+      if (gallery.lookupAll(20998, 100).size() != 1) {
+        return false;
+      }
+      if (!gallery.toString().endsWith("[(Name: Piece 19999) (Year: 20999) (Cost: $100.0)]\n")) {
+        return false;
+      }
+
+      // buy from the bottom of the list
+      gallery.buyArtwork("Piece 19999", 20999, 100);
+      if (gallery.size() != count - 1 || gallery.height() != count - 1) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    } catch (StackOverflowError e) {
+      return false; // recursion is too deep
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of ArtGallery.writeTo() methods. (1) Writing an empty gallery writes
+   * nothing. (2) Writing a non-empty gallery to an Appendable and to a Writer produces exactly the
+   * String returned by toString(). (3) A null destination is rejected.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testWriteTo() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+
+      // (1) empty gallery
+      StringBuilder empty = new StringBuilder();
+      gallery.writeTo(empty);
+      if (empty.length() != 0) {
+        return false;
+      }
+
+      // (2) non-empty gallery
+      gallery.addArtwork(new Artwork("Guernica, Picasso", 1937, 3000));
+      gallery.addArtwork(new Artwork("Starry Night, Van Gogh", 1889, 2000));
+      gallery.addArtwork(new Artwork("NightHawks, Hopper", 1942, 4000));
+      gallery.addArtwork(new Artwork("Mona Lisa, DaVinci", 1503, 1000));
+
+      String expected = "[(Name: Mona Lisa, DaVinci) (Year: 1503) (Cost: $1000.0)]\n"
+          + "[(Name: Starry Night, Van Gogh) (Year: 1889) (Cost: $2000.0)]\n"
+          + "[(Name: Guernica, Picasso) (Year: 1937) (Cost: $3000.0)]\n"
+          + "[(Name: NightHawks, Hopper) (Year: 1942) (Cost: $4000.0)]\n";
+
+      StringBuilder appendable = new StringBuilder();
+      gallery.writeTo(appendable);
+      StringWriter writer = new StringWriter();
+      gallery.writeTo(writer);
+
+      if (!appendable.toString().equals(expected) || !writer.toString().equals(expected)
+          || !gallery.toString().equals(expected)) {
+        System.out.println(writer);
+        return false;
+      }
+
+      // (3) null destination
+      try {
+        gallery.writeTo((Appendable) null);
+        return false;
+      } catch (NullPointerException e) {
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the lookupAll() variants of ArtGallery. (1) Artworks of the searched
+   * year stored in the right subtree of another artwork of that year are found. (2) The matches are
+   * added to a caller-supplied collection, which can be reused. (3) The lazy stream returns the same
+   * artworks in the same order, and can be cut short.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testLookupAllCollectionStream() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      gallery.addArtwork(new Artwork("b", 1965, 300));
+      gallery.addArtwork(new Artwork("a", 1965, 100));
+      gallery.addArtwork(new Artwork("c", 1965, 500));
+      gallery.addArtwork(new Artwork("d", 1965, 400));
+      gallery.addArtwork(new Artwork("e", 1964, 50));
+      gallery.addArtwork(new Artwork("f", 1966, 50));
+
+      // (1) matches on both sides of the root
+      ArrayList<Artwork> list = gallery.lookupAll(1965, 450);
+      if (list.size() != 3 || !list.get(0).getName().equals("b")
+          || !list.get(1).getName().equals("a") || !list.get(2).getName().equals("d")) {
+        System.out.println(list);
+        return false;
+      }
+
+      // (2) caller-supplied collection
+      ArrayList<Artwork> result = new ArrayList<Artwork>();
+      if (gallery.lookupAll(1965, 100, result) != result || result.size() != 1) {
+        return false;
+      }
+      result.clear();
+      gallery.lookupAll(1966, 1000, result);
+      if (result.size() != 1 || !result.get(0).getName().equals("f")) {
+        return false;
+      }
+
+      // (3) lazy stream
+      if (!gallery.lookupAllStream(1965, 450).collect(Collectors.toList()).equals(list)) {
+        return false;
+      }
+      if (gallery.lookupAllStream(1965, 1000).limit(2).count() != 2
+          || gallery.lookupAllStream(1965, 10).findFirst().isPresent()
+          || new ArtGallery().lookupAllStream(1965, 1000).count() != 0) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the order statistics of ArtGallery, in both unbalanced and balanced
+   * mode. (1) select() returns the artworks in increasing order and rank() is its inverse. (2)
+   * rank() of an artwork which is not stored counts the smaller artworks. (3) percentile() returns
+   * the expected artworks of a year, including the last representable year. (4) All of the above
+   * still hold after buying artworks. (5) select() rejects invalid ranks.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testOrderStatistics() {
+
+    try {
+      for (boolean mode : new boolean[] {false, true}) {
+        ArtGallery gallery = new ArtGallery(mode);
+        gallery.addArtwork(new Artwork("Guernica, Picasso", 1937, 3000));
+        gallery.addArtwork(new Artwork("Starry Night, Van Gogh", 1889, 2000));
+        gallery.addArtwork(new Artwork("NightHawks, Hopper", 1942, 4000));
+        gallery.addArtwork(new Artwork("Mona Lisa, DaVinci", 1503, 1000));
+        gallery.addArtwork(new Artwork("Blue, Miro", 1965, 500));
+        gallery.addArtwork(new Artwork("Red, Miro", 1965, 900));
+        gallery.addArtwork(new Artwork("Green, Miro", 1965, 700));
+        gallery.addArtwork(new Artwork("Yellow, Miro", 1965, 100));
+
+        // (1) select and rank
+        String[] names = {"Mona Lisa, DaVinci", "Starry Night, Van Gogh", "Guernica, Picasso",
+            "NightHawks, Hopper", "Yellow, Miro", "Blue, Miro", "Green, Miro", "Red, Miro"};
+        for (int i = 0; i < names.length; i++) {
+          if (!gallery.select(i).getName().equals(names[i])
+              || gallery.rank(gallery.select(i)) != i) {
+            return false;
+          }
+        }
+
+        // (2) rank of an artwork which is not stored
+        if (gallery.rank(new Artwork("Pink, Miro", 1965, 600)) != 6
+            || gallery.rank(new Artwork("Old", 1000, 1)) != 0
+            || gallery.rank(new Artwork("New", 3000, 1)) != 8) {
+          return false;
+        }
+
+        // (3) percentiles of 1965: 100, 500, 700, 900
+        if (!gallery.percentile(1965, 50).getName().equals("Blue, Miro")
+            || !gallery.percentile(1965, 0).getName().equals("Yellow, Miro")
+            || !gallery.percentile(1965, 100).getName().equals("Red, Miro")
+            || gallery.percentile(1966, 50) != null) {
+          return false;
+        }
+        gallery.addArtwork(new Artwork("Future, A", Integer.MAX_VALUE, 10));
+        gallery.addArtwork(new Artwork("Future, B", Integer.MAX_VALUE, 20));
+        if (!gallery.percentile(Integer.MAX_VALUE, 50).getName().equals("Future, A")
+            || !gallery.percentile(Integer.MAX_VALUE, 100).getName().equals("Future, B")) {
+          return false;
+        }
+        gallery.buyArtwork("Future, A", Integer.MAX_VALUE, 10);
+        gallery.buyArtwork("Future, B", Integer.MAX_VALUE, 20);
+
+        // (4) after buying
+        gallery.buyArtwork("Guernica, Picasso", 1937, 3000);
+        gallery.buyArtwork("Yellow, Miro", 1965, 100);
+        if (!gallery.select(2).getName().equals("NightHawks, Hopper")
+            || !gallery.percentile(1965, 50).getName().equals("Green, Miro")
+            || gallery.rank(gallery.getBestArtwork()) != 5) {
+          return false;
+        }
+
+        // (5) invalid ranks
+        try {
+          gallery.select(6);
+          return false;
+        } catch (IndexOutOfBoundsException e) {
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks that the heights stored in the gallery are kept up to date. (1) height() and
+   * height(Artwork) return the expected values on a gallery of known shape. (2) They are still
+   * correct after buying artworks at leaf and non-leaf nodes. (3) height(Artwork) returns 0 for an
+   * artwork which is not stored.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testStoredHeights() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      Artwork root = new Artwork("A, Marin", 1937, 30000);
+      Artwork nerdy = new Artwork("Nerdy, Computer Science", 1942, 40000);
+      Artwork happy = new Artwork("We are happy, CS major2", 2000, 50000);
+      gallery.addArtwork(root);
+      gallery.addArtwork(new Artwork("B, Maddie", 1937, 20000));
+      gallery.addArtwork(nerdy);
+      gallery.addArtwork(new Artwork("High Salary, CS major1", 1503, 10000));
+      gallery.addArtwork(happy);
+      gallery.addArtwork(new Artwork("We can do this, CS major3", 2021, 60800));
+      gallery.addArtwork(new Artwork("We can do this, CS major3", 1940, 60800));
+
+      // (1) known shape
+      if (gallery.height() != 4 || gallery.height(root) != 4 || gallery.height(nerdy) != 3
+          || gallery.height(happy) != 2) {
+        return false;
+      }
+
+      // (2) buy a non-leaf node then a leaf
+      gallery.buyArtwork("Nerdy, Computer Science", 1942, 40000);
+      if (gallery.height() != 3 || gallery.height(happy) != 2) {
+        return false;
+      }
+      gallery.buyArtwork("High Salary, CS major1", 1503, 10000);
+      if (gallery.height() != 3 || gallery.height(new Artwork("B, Maddie", 1937, 20000)) != 1) {
+        return false;
+      }
+
+      // (3) not stored
+      if (gallery.height(nerdy) != 0 || new ArtGallery().height(root) != 0) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of ArtGallery.bulkLoad() and ArtGallery.fromSorted() methods. (1) A
+   * shuffled collection large enough to be sorted in parallel, with duplicates, is loaded into a
+   * gallery of minimum height storing the same artworks as a gallery built with addArtwork(). (2)
+   * fromSorted() builds the same gallery from the sorted artworks and rejects an unsorted list. (3)
+   * The loaded gallery stays balanced through further additions and purchases. (4) Empty inputs
+   * give empty galleries.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testBulkLoad() {
+
+    try {
+      ArrayList<Artwork> artworks = new ArrayList<Artwork>();
+      ArtGallery expected = new ArtGallery(true);
+      for (int i = 0; i < 10000; i++) {
+        Artwork artwork = new Artwork("Piece " + (i % 97), 1500 + i % 500, 100 + i % 13);
+        artworks.add(artwork);
+        artworks.add(artwork); // duplicate
+        expected.addArtwork(artwork);
+      }
+      Collections.shuffle(artworks, new Random(42));
+
+      // (1) bulk load
+      ArtGallery gallery = ArtGallery.bulkLoad(artworks);
+      if (gallery.size() != expected.size() || !gallery.toString().equals(expected.toString())
+          || !gallery.isBalanced() || gallery.height() != 14) {
+        return false;
+      }
+
+      // (2) from sorted
+      ArrayList<Artwork> sorted = new ArrayList<Artwork>(artworks);
+      Collections.sort(sorted);
+      ArtGallery fromSorted = ArtGallery.fromSorted(sorted);
+      if (fromSorted.size() != expected.size()
+          || !fromSorted.toString().equals(expected.toString()) || fromSorted.height() != 14) {
+        return false;
+      }
+      try {
+        ArtGallery.fromSorted(artworks);
+        return false;
+      } catch (IllegalArgumentException e) {
+      }
+
+      // (3) further operations
+      for (int i = 0; i < 5000; i++) {
+        gallery.addArtwork(new Artwork("Later " + i, 3000 + i, 100));
+      }
+      gallery.buyArtwork("Piece 0", 1500, 100);
+      if (gallery.height() > 15 || gallery.lookup("Piece 0", 1500, 100)
+          || !gallery.lookup("Later 4999", 7999, 100)) {
+        return false;
+      }
+
+      // (4) empty inputs
+      if (!ArtGallery.bulkLoad(new ArrayList<Artwork>()).isEmpty()
+          || ArtGallery.fromSorted(new ArrayList<Artwork>()).height() != 0) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of ConcurrentArtGallery when shared between threads. Writer threads add
+   * then buy artworks while reader threads keep looking them up. (1) No thread fails. (2) The final
+   * size and content match the operations that were run. (3) Artworks that are never bought are
+   * always found by the readers.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testConcurrentGallery() {
+
+    try {
+      ConcurrentArtGallery gallery = new ConcurrentArtGallery(true);
+      for (int i = 0; i < 100; i++) {
+        gallery.addArtwork(new Artwork("Permanent " + i, 1900 + i, 1000));
+      }
+
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+      for (int t = 0; t < 4; t++) {
+        final int writer = t;
+        results.add(pool.submit(() -> {
+          for (int i = 0; i < 2000; i++) {
+            gallery.addArtwork(new Artwork("W" + writer + " " + i, 1000 + i, 100 + writer));
+          }
+          for (int i = 0; i < 2000; i += 2) {
+            gallery.buyArtwork("W" + writer + " " + i, 1000 + i, 100 + writer);
+          }
+          return true;
+        }));
+        results.add(pool.submit(() -> {
+          for (int i = 0; i < 20000; i++) {
+            if (!gallery.lookup("Permanent " + (i % 100), 1900 + i % 100, 1000)
+                || gallery.lookupAll(1900 + i % 100, 1000).isEmpty()
+                || gallery.getBestArtwork() == null) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+
+      // (1) no failure
+      for (Future<Boolean> result : results) {
+        if (!result.get()) {
+          return false;
+        }
+      }
+      pool.shutdown();
+
+      // (2) final content
+      if (gallery.size() != 100 + 4 * 1000 || !gallery.lookup("W3 1999", 2999, 103)
+          || gallery.lookup("W3 1998", 2998, 103) || gallery.height() > 16) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of PersistentArtGallery. (1) Adding and buying artworks return new
+   * versions while the previous versions, and snapshots of them, keep their content. (2) Adding a
+   * duplicate returns the same version. (3) Versions stay balanced on a year-sorted feed and agree
+   * with an ArtGallery holding the same artworks. (4) Buying a missing artwork throws a
+   * NoSuchElementException. (5) Like ArtGallery, artworks are identified by their name and year
+   * whatever the given cost.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testPersistentGallery() {
+
+    try {
+      // (1) versions
+      PersistentArtGallery empty = new PersistentArtGallery();
+      PersistentArtGallery one = empty.addArtwork(new Artwork("Guernica, Picasso", 1937, 3000));
+      PersistentArtGallery snapshot = one.snapshot();
+      PersistentArtGallery two = one.addArtwork(new Artwork("Mona Lisa, DaVinci", 1503, 1000));
+      PersistentArtGallery bought = two.buyArtwork("Guernica, Picasso", 1937, 3000);
+
+      if (!empty.isEmpty() || one.size() != 1 || two.size() != 2 || bought.size() != 1
+          || !snapshot.lookup("Guernica, Picasso", 1937, 3000)
+          || snapshot.lookup("Mona Lisa, DaVinci", 1503, 1000)
+          || !two.lookup("Guernica, Picasso", 1937, 3000)
+          || bought.lookup("Guernica, Picasso", 1937, 3000)
+          || !bought.lookup("Mona Lisa, DaVinci", 1503, 1000)) {
+        return false;
+      }
+
+      // (2) duplicate
+      if (two.addArtwork(new Artwork("Mona Lisa, DaVinci", 1503, 1000)) != two) {
+        return false;
+      }
+
+      // (3) year-sorted feed
+      PersistentArtGallery version = new PersistentArtGallery();
+      ArtGallery gallery = new ArtGallery();
+      for (int i = 0; i < 1023; i++) {
+        Artwork artwork = new Artwork("Piece " + i, 1000 + i, 100 + i % 7);
+        version = version.addArtwork(artwork);
+        gallery.addArtwork(artwork);
+      }
+      PersistentArtGallery full = version;
+      for (int i = 0; i < 1023; i += 3) {
+        version = version.buyArtwork("Piece " + i, 1000 + i, 100 + i % 7);
+        gallery.buyArtwork("Piece " + i, 1000 + i, 100 + i % 7);
+      }
+      if (full.size() != 1023 || full.height() > 14 || version.height() > 14
+          || version.size() != gallery.size() || !version.toString().equals(gallery.toString())
+          || !version.getBestArtwork().equals(gallery.getBestArtwork())
+          || !version.lookupAll(1001, 1000).equals(gallery.lookupAll(1001, 1000))
+          || !full.lookup("Piece 0", 1000, 100)) {
+        return false;
+      }
+
+      // (4) missing artwork
+      try {
+        version.buyArtwork("Piece 0", 1000, 100);
+        return false;
+      } catch (NoSuchElementException e) {
+      }
+
+      // (5) stale cost
+      for (int i = 0; i < 1023; i++) {
+        if (version.lookup("Piece " + i, 1000 + i, 5000) != gallery.lookup("Piece " + i, 1000 + i,
+            5000) || version.lookup("Piece " + i, 1000 + i) != gallery.lookup("Piece " + i,
+                1000 + i)) {
+          return false;
+        }
+      }
+      PersistentArtGallery stale = full.buyArtwork("Piece 500", 1500, 1);
+      if (stale.size() != 1022 || stale.lookup("Piece 500", 1500) || !full.lookup("Piece 500", 1500)
+          || stale.height() > 14 || full.addArtwork(new Artwork("Piece 500", 1500, 1)) != full) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of FrozenArtGallery. (1) Freezing an empty gallery gives an empty frozen
+   * gallery. (2) A frozen gallery agrees with the gallery it was created from on every search, its
+   * String representation, its best artwork and has a minimum height. Like the gallery, lookup()
+   * matches the name and year of an artwork whatever the given cost. (3) It does not change when
+   * the original gallery changes.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testFrozenGallery() {
+
+    try {
+      // (1) empty
+      FrozenArtGallery empty = new ArtGallery().freeze();
+      if (!empty.isEmpty() || empty.height() != 0 || empty.getBestArtwork() != null
+          || empty.lookup("a", 2000, 10) || !empty.lookupAll(2000, 10).isEmpty()
+          || !empty.toString().equals("")) {
+        return false;
+      }
+
+      // (2) same content as the original gallery
+      ArtGallery gallery = new ArtGallery();
+      Random random = new Random(7);
+      ArrayList<Artwork> artworks = new ArrayList<Artwork>();
+      for (int i = 0; i < 1000; i++) {
+        Artwork artwork = new Artwork("Piece " + i, 1900 + random.nextInt(50),
+            1 + random.nextInt(20));
+        artworks.add(artwork);
+        gallery.addArtwork(artwork);
+      }
+      FrozenArtGallery frozen = gallery.freeze();
+
+      if (frozen.size() != 1000 || frozen.height() != 10
+          || !frozen.toString().equals(gallery.toString())
+          || frozen.getBestArtwork() != gallery.getBestArtwork()) {
+        return false;
+      }
+      for (Artwork artwork : artworks) {
+        if (!frozen.lookup(artwork.getName(), artwork.getYear(), artwork.getCost())
+            || !frozen.lookup(artwork.getName(), artwork.getYear(), artwork.getCost() + 50)
+            || !frozen.lookup(artwork.getName(), artwork.getYear())
+            || frozen.lookup(artwork.getName(), artwork.getYear() + 100, artwork.getCost())) {
+          return false;
+        }
+      }
+      for (int year = 1899; year <= 1950; year++) {
+        for (int cost = 0; cost <= 21; cost += 3) {
+          ArrayList<Artwork> expected = gallery.lookupAll(year, cost);
+          ArrayList<Artwork> found = frozen.lookupAll(year, cost);
+          if (found.size() != expected.size() || !found.containsAll(expected)) {
+            return false;
+          }
+          for (int i = 1; i < found.size(); i++) {
+            if (found.get(i - 1).compareTo(found.get(i)) >= 0) {
+              return false; // not in increasing order
+            }
+          }
+        }
+      }
+
+      // (3) independent from the original gallery
+      String before = frozen.toString();
+      gallery.buyArtwork("Piece 0", artworks.get(0).getYear(), artworks.get(0).getCost());
+      if (!frozen.toString().equals(before) || frozen.size() != 1000) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of NameDictionary and of the artworks encoded with it. (1) Artworks
+   * with the same name share the same name instance and id. (2) equals() and compareTo() give the
+   * same results for encoded artworks as for plain ones, including ties broken by name, whether or
+   * not the names are already ranked by the code table. (3) A gallery of encoded artworks lists
+   * them in the same order as a gallery of plain ones.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testNameDictionary() {
+
+    try {
+      NameDictionary dictionary = new NameDictionary();
+
+      // (1) shared names
+      EncodedArtwork a =
+          new EncodedArtwork(new String("Monet, Water Lilies"), 1906, 100, dictionary);
+      EncodedArtwork b =
+          new EncodedArtwork(new String("Monet, Water Lilies"), 1906, 200, dictionary);
+      if (a.getName() != b.getName() || a.getNameId() != b.getNameId()
+          || dictionary.size() != 1 || dictionary.id("Monet, Water Lilies") != a.getNameId()
+          || dictionary.id("Unknown") != -1 || a.getDictionary() != dictionary) {
+        return false;
+      }
+
+      // (2) same results as plain artworks, names compared as ids or as Strings
+      Random random = new Random(3);
+      for (int i = 0; i < 2000; i++) {
+        String name = "Artist " + random.nextInt(300);
+        String otherName = "Artist " + random.nextInt(300);
+        int year = 1900 + random.nextInt(2);
+        int otherYear = 1900 + random.nextInt(2);
+        double cost = 1 + random.nextInt(2);
+        double otherCost = 1 + random.nextInt(2);
+
+        Artwork plain = new Artwork(name, year, cost);
+        Artwork otherPlain = new Artwork(otherName, otherYear, otherCost);
+        Artwork encoded = new EncodedArtwork(name, year, cost, dictionary);
+        Artwork otherEncoded = new EncodedArtwork(otherName, otherYear, otherCost, dictionary);
+
+        if (Integer.signum(plain.compareTo(otherPlain)) != Integer
+            .signum(encoded.compareTo(otherEncoded))
+            || plain.equals(otherPlain) != encoded.equals(otherEncoded)
+            || !plain.equals(encoded) || plain.compareTo(encoded) != 0
+            || !encoded.equals(plain) || encoded.compareTo(plain) != 0) {
+          return false;
+        }
+      }
+
+      // (3) same order in a gallery
+      ArtGallery plainGallery = new ArtGallery();
+      ArtGallery encodedGallery = new ArtGallery(true);
+      for (int i = 0; i < 500; i++) {
+        String name = "Name " + random.nextInt(1000);
+        plainGallery.addArtwork(new Artwork(name, 2000, 10));
+        encodedGallery.addArtwork(new EncodedArtwork(name, 2000, 10, dictionary));
+      }
+      if (!plainGallery.toString().equals(encodedGallery.toString())) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the hash index of ArtGallery and of Artwork.hashCode(). (1) Equal
+   * artworks have the same hash code whatever their cost. (2) lookup() and buyArtwork() find an
+   * artwork from its name and year even with another cost, in balanced and unbalanced galleries.
+   * (3) addArtwork() rejects an artwork matching a stored one with another cost. (4) The index
+   * stays in sync with the tree through many random additions and purchases.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testHashIndex() {
+
+    try {
+      // (1) hashCode consistent with equals
+      Artwork a = new Artwork("Vermeer", 1665, 100);
+      Artwork b = new Artwork(new String("Vermeer"), 1665, 900);
+      Artwork c = new EncodedArtwork("Vermeer", 1665, 1, new NameDictionary());
+      if (!a.equals(b) || a.hashCode() != b.hashCode() || a.hashCode() != c.hashCode()) {
+        return false;
+      }
+
+      for (boolean balanced : new boolean[] {false, true}) {
+        ArtGallery gallery = new ArtGallery(balanced);
+        gallery.addArtwork(new Artwork("a", 1001, 500));
+        gallery.addArtwork(new Artwork("b", 1002, 200));
+        gallery.addArtwork(new Artwork("c", 1003, 300));
+
+        // (2) stale cost
+        if (!gallery.lookup("a", 1001, 1) || gallery.lookup("a", 1002, 500)
+            || gallery.height(new Artwork("c", 1003, 1)) != 1) {
+          return false;
+        }
+
+        // (3) match with another cost
+        if (gallery.addArtwork(new Artwork("b", 1002, 999)) || gallery.size() != 3) {
+          return false;
+        }
+
+        gallery.buyArtwork("a", 1001, 1);
+        if (gallery.size() != 2 || gallery.lookup("a", 1001, 500)
+            || !gallery.toString().equals("[(Name: b) (Year: 1002) (Cost: $200.0)]\n"
+                + "[(Name: c) (Year: 1003) (Cost: $300.0)]\n")) {
+          return false;
+        }
+
+        try {
+          gallery.buyArtwork("a", 1001, 500);
+          return false; // already bought
+        } catch (NoSuchElementException e) {
+          // expected
+        }
+      }
+
+      // (4) random additions and purchases
+      Random random = new Random(13);
+      ArtGallery gallery = new ArtGallery(true);
+      HashSet<Artwork> expected = new HashSet<Artwork>();
+      for (int i = 0; i < 20000; i++) {
+        Artwork artwork = new Artwork("Name " + random.nextInt(200), 1500 + random.nextInt(20),
+            1 + random.nextInt(50));
+        if (random.nextBoolean()) {
+          if (gallery.addArtwork(artwork) != expected.add(artwork)) {
+            return false;
+          }
+        } else if (expected.remove(artwork)) {
+          gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+        } else if (gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost())) {
+          return false;
+        }
+      }
+      if (gallery.size() != expected.size()) {
+        return false;
+      }
+      for (Artwork artwork : expected) {
+        if (!gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost() + 1)) {
+          return false;
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the cost index of ArtGallery. (1) lookupByCost() returns the
+   * artworks of a cost range in increasing order of cost, whatever their year. (2) cheapest()
+   * returns the cheapest artworks. (3) Both stay in sync with the gallery through random additions
+   * and purchases, compared with a full sort of the gallery.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testCostIndex() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      gallery.addArtwork(new Artwork("a", 1500, 300));
+      gallery.addArtwork(new Artwork("b", 1200, 100));
+      gallery.addArtwork(new Artwork("c", 1900, 200));
+      gallery.addArtwork(new Artwork("d", 1100, 200));
+      gallery.addArtwork(new Artwork("e", 1700, 500));
+
+      // (1) cost range across years
+      String names = gallery.lookupByCost(150, 300).stream().map(Artwork::getName)
+          .collect(Collectors.joining(" "));
+      if (!names.equals("d c a") || !gallery.lookupByCost(600, 900).isEmpty()
+          || !gallery.lookupByCost(300, 100).isEmpty()) {
+        return false;
+      }
+
+      // (2) cheapest artworks
+      names = gallery.cheapest(2).stream().map(Artwork::getName).collect(Collectors.joining(" "));
+      if (!names.equals("b d") || gallery.cheapest(10).size() != 5
+          || !gallery.cheapest(0).isEmpty()) {
+        return false;
+      }
+
+      try {
+        gallery.cheapest(-1);
+        return false; // invalid count
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      gallery.buyArtwork("d", 1100, 1);
+      if (gallery.lookupByCost(200, 200).size() != 1) {
+        return false;
+      }
+
+      // (3) random additions and purchases
+      Random random = new Random(14);
+      Comparator<Artwork> byCost =
+          Comparator.comparingDouble(Artwork::getCost).thenComparing(Comparator.naturalOrder());
+      gallery = new ArtGallery(true);
+      ArrayList<Artwork> stored = new ArrayList<Artwork>();
+      for (int i = 0; i < 5000; i++) {
+        Artwork artwork = new Artwork("Name " + random.nextInt(100), 1500 + random.nextInt(20),
+            1 + random.nextInt(100));
+        if (random.nextInt(3) > 0) {
+          if (gallery.addArtwork(artwork)) {
+            stored.add(artwork);
+          }
+        } else if (gallery.lookup(artwork.getName(), artwork.getYear(), artwork.getCost())) {
+          gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+          stored.remove(artwork);
+        }
+      }
+
+      stored.sort(byCost);
+      if (!gallery.cheapest(stored.size()).equals(stored)) {
+        return false;
+      }
+      for (int i = 0; i < 50; i++) {
+        double minCost = 1 + random.nextInt(100);
+        double maxCost = minCost + random.nextInt(20);
+        List<Artwork> expected = stored.stream()
+            .filter(artwork -> artwork.getCost() >= minCost && artwork.getCost() <= maxCost)
+            .collect(Collectors.toList());
+        if (!gallery.lookupByCost(minCost, maxCost).equals(expected)) {
+          return false;
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the name search of ArtGallery. (1) searchByName() finds the
+   * artworks having a word starting with the query, ignoring case, even across words. (2) The
+   * limit is respected and an artwork matching at several words is listed once. (3) Bought
+   * artworks are no longer found. (4) The memory used to index a name grows with its number of
+   * words, not with its number of words times its length.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testNameSearch() {
+
+    try {
+      ArtGallery gallery = new ArtGallery(true);
+      gallery.addArtwork(new Artwork("Monet, Water Lilies", 1906, 100));
+      gallery.addArtwork(new Artwork("Picasso, Guernica", 1937, 200));
+      gallery.addArtwork(new Artwork("Picasso, Les Demoiselles", 1907, 300));
+      gallery.addArtwork(new Artwork("Hokusai, The Great Wave off Kanagawa", 1831, 400));
+      gallery.addArtwork(new Artwork("Waterhouse, The Lady of Shalott", 1888, 500));
+
+      // (1) word prefixes, ignoring case
+      if (gallery.searchByName("Picasso").size() != 2
+          || !gallery.searchByName("water li").get(0).getName().equals("Monet, Water Lilies")
+          || gallery.searchByName("Water").size() != 2 || gallery.searchByName("the").size() != 2
+          || !gallery.searchByName("asso").isEmpty() || !gallery.searchByName("Lilies!").isEmpty()
+          || gallery.searchByName("").size() != 5) {
+        return false;
+      }
+
+      // (2) limit and duplicates
+      gallery.addArtwork(new Artwork("Wave Wave Wave", 2000, 10));
+      if (gallery.searchByName("wave").size() != 2 || gallery.searchByName("w", 3).size() != 3
+          || !gallery.searchByName("w", 0).isEmpty()) {
+        return false;
+      }
+
+      try {
+        gallery.searchByName("w", -1);
+        return false; // invalid limit
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      // (3) bought artworks
+      gallery.buyArtwork("Picasso, Guernica", 1937, 200);
+      ArrayList<Artwork> found = gallery.searchByName("PICASSO", 10);
+      if (found.size() != 1 || !found.get(0).getName().equals("Picasso, Les Demoiselles")) {
+        return false;
+      }
+
+      // (4) names of 20 short words and of 20 long words, already in lower case
+      long[] bytes = new long[2];
+      String[] words = {"ab", "abcdefghij".repeat(20)};
+      for (int length = 0; length < 2; length++) {
+        Artwork[] artworks = new Artwork[100];
+        for (int i = 0; i < artworks.length; i++) {
+          artworks[i] = new Artwork((words[length] + " ").repeat(20) + i, 2000, 10);
+        }
+        NameIndex index = new NameIndex();
+        long before = ArtGalleryBenchmark.allocatedBytes();
+        for (Artwork artwork : artworks) {
+          index.add(artwork);
+        }
+        bytes[length] = (ArtGalleryBenchmark.allocatedBytes() - before) / artworks.length;
+      }
+      if (bytes[0] >= 0 && bytes[1] > bytes[0] + 1000) {
+        return false; // the suffixes were copied
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of buyAll() and removeRange(). (1) buyAll() buys the matches, with any
+   * cost, and reports the missing artworks in order, including duplicates of the batch. (2)
+   * removeRange() removes and returns the artworks of a range of years. (3) Large batches, removed
+   * in a single pass, leave a gallery with a minimum height whose ranks, indexes and String
+   * representation are consistent, in balanced and unbalanced mode.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testBatchRemoval() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      gallery.addArtwork(new Artwork("a", 1001, 500));
+      gallery.addArtwork(new Artwork("b", 1002, 200));
+      gallery.addArtwork(new Artwork("c", 1003, 300));
+      gallery.addArtwork(new Artwork("d", 1004, 400));
+
+      // (1) batch purchase
+      ArrayList<Artwork> missing = gallery.buyAll(Arrays.asList(new Artwork("b", 1002, 1),
+          new Artwork("x", 1002, 200), new Artwork("b", 1002, 200), new Artwork("d", 1004, 400)));
+      if (missing.size() != 2 || !missing.get(0).getName().equals("x")
+          || missing.get(1).getCost() != 200 || gallery.size() != 2 || gallery.lookup("b", 1002, 1)
+          || !gallery.lookup("c", 1003, 300)) {
+        return false;
+      }
+
+      // (2) range of years
+      ArrayList<Artwork> removed = gallery.removeRange(1002, 1010);
+      if (removed.size() != 1 || !removed.get(0).getName().equals("c") || gallery.size() != 1
+          || !gallery.removeRange(1010, 1000).isEmpty()) {
+        return false;
+      }
+
+      // (3) large batches
+      for (boolean balanced : new boolean[] {false, true}) {
+        gallery = new ArtGallery(balanced);
+        ArrayList<Artwork> batch = new ArrayList<Artwork>();
+        Random random = new Random(16);
+        for (int i = 0; i < 3000; i++) {
+          Artwork artwork = new Artwork("Name " + i, 1500 + random.nextInt(300), 1 + i % 97);
+          gallery.addArtwork(artwork);
+          if (i % 3 == 0) {
+            batch.add(artwork);
+          }
+        }
+
+        if (!gallery.buyAll(batch).isEmpty() || gallery.size() != 2000
+            || gallery.height() != 11) {
+          return false;
+        }
+        removed = gallery.removeRange(1600, 1699);
+        if (gallery.size() != 2000 - removed.size() || gallery.height() != 11
+            || !gallery.lookupAll(1650, 1000).isEmpty()
+            || gallery.lookupByCost(1, 1000).size() != gallery.size()) {
+          return false;
+        }
+
+        for (int i = 0; i < gallery.size(); i++) {
+          if (gallery.rank(gallery.select(i)) != i) {
+            return false;
+          }
+        }
+        if (gallery.toString().split("\n").length != gallery.size()) {
+          return false;
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the iteration API of ArtGallery. (1) iterator() and the for-each
+   * loop list the artworks in the same order as toString(), and descendingIterator() in reverse
+   * order. (2) iterator(fromYear, toYear) lists exactly the artworks of the range. (3) stream() and
+   * its parallel version, which splits the tree, return all the artworks in order. (4) The
+   * spliterator splits into sized halves.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testIterators() {
+
+    try {
+      ArtGallery gallery = new ArtGallery();
+      Random random = new Random(17);
+      for (int i = 0; i < 5000; i++) {
+        gallery.addArtwork(new Artwork("Name " + i, 1500 + random.nextInt(500), 1 + i % 89));
+      }
+
+      // (1) increasing and decreasing order
+      StringBuilder ascending = new StringBuilder();
+      for (Artwork artwork : gallery) {
+        ascending.append(artwork).append("\n");
+      }
+      ArrayList<Artwork> descending = new ArrayList<Artwork>();
+      gallery.descendingIterator().forEachRemaining(descending::add);
+      Collections.reverse(descending);
+      if (!ascending.toString().equals(gallery.toString())
+          || !descending.equals(gallery.stream().collect(Collectors.toList()))
+          || descending.get(0) != gallery.select(0)) {
+        return false;
+      }
+
+      // (2) range of years
+      ArrayList<Artwork> range = new ArrayList<Artwork>();
+      gallery.iterator(1600, 1649).forEachRemaining(range::add);
+      List<Artwork> expected = gallery.stream()
+          .filter(artwork -> artwork.getYear() >= 1600 && artwork.getYear() <= 1649)
+          .collect(Collectors.toList());
+      if (range.isEmpty() || !range.equals(expected) || gallery.iterator(1649, 1600).hasNext()
+          || new ArtGallery().iterator().hasNext()) {
+        return false;
+      }
+
+      // (3) parallel stream
+      List<Artwork> parallel = gallery.stream().parallel().collect(Collectors.toList());
+      if (!parallel.equals(gallery.stream().collect(Collectors.toList()))
+          || gallery.stream().parallel().count() != 5000
+          || gallery.stream().parallel().mapToDouble(Artwork::getCost).sum() != gallery.stream()
+              .mapToDouble(Artwork::getCost).sum()) {
+        return false;
+      }
+
+      // (4) splitting
+      Spliterator<Artwork> suffix = gallery.spliterator();
+      suffix.tryAdvance(artwork -> {
+      });
+      Spliterator<Artwork> prefix = suffix.trySplit();
+      if (prefix.estimateSize() != 2499 || suffix.estimateSize() != 2500
+          || !suffix.hasCharacteristics(Spliterator.SUBSIZED)) {
+        return false;
+      }
+      ArrayList<Artwork> halves = new ArrayList<Artwork>();
+      prefix.forEachRemaining(halves::add);
+      suffix.forEachRemaining(halves::add);
+      if (!halves.equals(parallel.subList(1, 5000))) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the parallel aggregations of ArtGallery, compared with sequential
+   * computations. (1) totalValue() and aggregate(). (2) statsByYear(). (3) histogram() per decade,
+   * and its invalid arguments. (4) A degenerate unbalanced gallery is aggregated without
+   * overflowing the stack.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testAggregations() {
+
+    try {
+      ArtGallery gallery = new ArtGallery(true);
+      Random random = new Random(18);
+      double total = 0;
+      for (int i = 0; i < 20000; i++) {
+        Artwork artwork = new Artwork("Name " + i, 1500 + random.nextInt(500), 1 + i % 1000);
+        gallery.addArtwork(artwork);
+        total += artwork.getCost();
+      }
+
+      // (1) total value and custom collector
+      if (gallery.totalValue() != total || new ArtGallery().totalValue() != 0
+          || !gallery.aggregate(Collectors.toList()).equals(gallery.stream()
+              .collect(Collectors.toList()))) {
+        return false;
+      }
+
+      // (2) statistics per year
+      TreeMap<Integer, DoubleSummaryStatistics> stats = gallery.statsByYear();
+      long count = 0;
+      for (Map.Entry<Integer, DoubleSummaryStatistics> entry : stats.entrySet()) {
+        ArrayList<Artwork> year = gallery.lookupAll(entry.getKey(), 1000);
+        double sum = year.stream().mapToDouble(Artwork::getCost).sum();
+        if (entry.getValue().getCount() != year.size() || entry.getValue().getSum() != sum
+            || entry.getValue().getMax() != year.stream().mapToDouble(Artwork::getCost).max()
+                .getAsDouble()) {
+          return false;
+        }
+        count += year.size();
+      }
+      if (count != 20000 || stats.firstKey() != gallery.select(0).getYear()) {
+        return false;
+      }
+
+      // (3) histogram per decade
+      TreeMap<Integer, TreeMap<Double, Long>> histogram = gallery.histogram(10, 250);
+      long decade = gallery.stream()
+          .filter(artwork -> artwork.getYear() >= 1700 && artwork.getYear() < 1710
+              && artwork.getCost() >= 500 && artwork.getCost() < 750)
+          .count();
+      if (histogram.size() != 50 || histogram.get(1700).get(500.0) != decade
+          || histogram.get(1700).size() != 4) {
+        return false;
+      }
+      try {
+        gallery.histogram(0, 250);
+        return false; // invalid number of years
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      // (4) degenerate tree
+      ArtGallery deep = new ArtGallery();
+      for (int i = 0; i < 5000; i++) {
+        deep.addArtwork(new Artwork("Name", 1000 + i, 1));
+      }
+      if (deep.totalValue() != 5000 || deep.statsByYear().size() != 5000) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of the subtree aggregates of ArtGallery, compared with a scan of the
+   * artworks. (1) count(), totalValue(), getCheapestArtwork() and getMostExpensiveArtwork() on
+   * random ranges of years, in balanced and unbalanced mode. (2) The aggregates stay correct
+   * after purchases and batch removals. (3) Empty ranges.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testRangeAggregates() {
+
+    try {
+      for (boolean balanced : new boolean[] {false, true}) {
+        ArtGallery gallery = new ArtGallery(balanced);
+        Random random = new Random(19);
+        for (int i = 0; i < 3000; i++) {
+          gallery.addArtwork(
+              new Artwork("Name " + i, 1500 + random.nextInt(500), 1 + random.nextInt(1000)));
+        }
+
+        for (int round = 0; round < 3; round++) {
+
+          // (1) random ranges
+          for (int i = 0; i < 200; i++) {
+            int fromYear = 1490 + random.nextInt(520);
+            int toYear = fromYear + random.nextInt(100);
+            List<Artwork> range = gallery.stream().filter(
+                artwork -> artwork.getYear() >= fromYear && artwork.getYear() <= toYear)
+                .collect(Collectors.toList());
+            double total = range.stream().mapToDouble(Artwork::getCost).sum();
+            Comparator<Artwork> byCost = Comparator.comparingDouble(Artwork::getCost)
+                .thenComparing(Comparator.naturalOrder());
+            Artwork cheapest = range.stream().min(byCost).orElse(null);
+            Artwork mostExpensive = range.stream().max(byCost).orElse(null);
+            if (gallery.count(fromYear, toYear) != range.size()
+                || gallery.totalValue(fromYear, toYear) != total
+                || gallery.getCheapestArtwork(fromYear, toYear) != cheapest
+                || gallery.getMostExpensiveArtwork(fromYear, toYear) != mostExpensive) {
+              return false;
+            }
+          }
+
+          // (2) purchases and batch removals
+          for (int i = 0; i < 200; i++) {
+            Artwork artwork = gallery.select(random.nextInt(gallery.size()));
+            gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+          }
+          int fromYear = 1500 + random.nextInt(500);
+          gallery.removeRange(fromYear, fromYear + 20);
+        }
+
+        // (3) empty ranges
+        if (gallery.count(1200, 1300) != 0 || gallery.totalValue(1800, 1700) != 0
+            || gallery.getCheapestArtwork(2100, 2200) != null
+            || new ArtGallery().getMostExpensiveArtwork(1000, 3000) != null) {
+          return false;
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of save() and load(). (1) A loaded gallery has the same artworks,
+   * shape, mode and answers as the saved one, in balanced and unbalanced mode, and keeps working
+   * after updates. (2) An empty gallery round-trips. (3) A file which is not a snapshot is rejected
+   * with an IOException. (4) saveSorted() writes the same file as saving the gallery built by
+   * fromSorted().
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testSnapshot() {
+
+    Path file = null;
+    try {
+      file = Files.createTempFile("gallery", ".snapshot");
+
+      // (1) round trip
+      for (boolean balanced : new boolean[] {false, true}) {
+        ArtGallery gallery = new ArtGallery(balanced);
+        Random random = new Random(20);
+        for (int i = 0; i < 2000; i++) {
+          gallery.addArtwork(new Artwork("Name \u00e9 " + random.nextInt(300),
+              1500 + random.nextInt(500), 1 + random.nextInt(1000) / 7.0));
+        }
+        gallery.save(file);
+        ArtGallery loaded = ArtGallery.load(file);
+
+        if (loaded.isBalanced() != balanced || loaded.size() != gallery.size()
+            || loaded.height() != gallery.height()
+            || !loaded.toString().equals(gallery.toString())
+            || loaded.totalValue(1600, 1700) != gallery.totalValue(1600, 1700)
+            || !loaded.lookupByCost(10, 20).equals(gallery.lookupByCost(10, 20))
+            || !loaded.searchByName("name").equals(gallery.searchByName("name"))) {
+          return false;
+        }
+        for (int i = 0; i < gallery.size(); i += 97) {
+          Artwork artwork = gallery.select(i);
+          if (loaded.height(artwork) != gallery.height(artwork) || loaded.rank(artwork) != i
+              || !loaded.lookup(artwork.getName(), artwork.getYear(), artwork.getCost())) {
+            return false;
+          }
+        }
+
+        Artwork first = loaded.select(0);
+        loaded.buyArtwork(first.getName(), first.getYear(), first.getCost());
+        if (!loaded.addArtwork(first) || loaded.size() != gallery.size()) {
+          return false;
+        }
+      }
+
+      // (2) empty gallery
+      new ArtGallery().save(file);
+      if (!ArtGallery.load(file).isEmpty()) {
+        return false;
+      }
+
+      // (3) not a snapshot
+      Files.write(file, "[(Name: a) (Year: 1001) (Cost: $500.0)]\n".getBytes());
+      try {
+        ArtGallery.load(file);
+        return false; // not a snapshot
+      } catch (IOException e) {
+        // expected
+      }
+
+      // (4) snapshot of a sorted array
+      for (int count : new int[] {0, 1, 2, 1000}) {
+        Artwork[] sorted = new Artwork[count];
+        for (int i = 0; i < count; i++) {
+          sorted[i] = new Artwork("Name " + i % 10, 1500 + i, 10 + i % 3);
+        }
+        ArtGallery.fromSorted(Arrays.asList(sorted), false).save(file);
+        byte[] expected = Files.readAllBytes(file);
+        ArtGallery.saveSorted(sorted, false, file);
+        if (!Arrays.equals(Files.readAllBytes(file), expected)) {
+          return false;
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    } finally {
+      try {
+        if (file != null) {
+          Files.deleteIfExists(file);
+        }
+      } catch (IOException e) {
+        // nothing else to do
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of DurableArtGallery. (1) Updates made by concurrent threads are all
+   * recovered when the directory is opened again. (2) A record torn by a crash at the end of the
+   * log is dropped. (3) Compaction, in the background and on demand, replaces the log by a
+   * snapshot without losing any update. (4) Files whose names do not follow the patterns of the
+   * gallery neither prevent it from opening nor get deleted.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testDurableGallery() {
+
+    Path directory = null;
+    try {
+      directory = Files.createTempDirectory("gallery");
+
+      // (1) concurrent updates
+      String expected;
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, true)) {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int thread = 0; thread < 4; thread++) {
+          int first = thread * 100;
+          results.add(executor.submit(() -> {
+            for (int i = first; i < first + 100; i++) {
+              gallery.addArtwork(new Artwork("Name " + i, 1500 + i % 50, 1 + i % 7));
+            }
+            for (int i = first; i < first + 100; i += 10) {
+              gallery.buyArtwork("Name " + i, 1500 + i % 50, 1000);
+            }
+            return true;
+          }));
+        }
+        for (Future<Boolean> result : results) {
+          result.get();
+        }
+        executor.shutdown();
+        if (gallery.addArtwork(new Artwork("Name 1", 1501, 5)) || gallery.size() != 360) {
+          return false;
+        }
+        expected = gallery.toString();
+      }
+
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, true)) {
+        if (gallery.size() != 360 || !gallery.toString().equals(expected)) {
+          return false;
+        }
+      }
+
+      // (2) torn record
+      Files.write(directory.resolve("log-0"), new byte[] {0, 0, 0, 40, 1, 0, 7},
+          StandardOpenOption.APPEND);
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, true)) {
+        if (!gallery.toString().equals(expected)) {
+          return false;
+        }
+        gallery.buyArtwork("Name 1", 1501, 2);
+        expected = gallery.toString();
+      }
+
+      // (3) compaction
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, true, 4096)) {
+        if (!gallery.toString().equals(expected)) {
+          return false;
+        }
+        for (int i = 1000; i < 1500; i++) {
+          gallery.addArtwork(new Artwork("Name " + i, 1800, i));
+        }
+        gallery.compact();
+        gallery.buyArtwork("Name 1000", 1800, 1000);
+        expected = gallery.toString();
+      }
+
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, false)) {
+        if (gallery.size() != 858 || !gallery.toString().equals(expected)
+            || gallery.lookup("Name 1000", 1800, 1000) || !gallery.lookup("Name 1499", 1800, 1)) {
+          return false;
+        }
+      }
+      try (Stream<Path> files = Files.list(directory)) {
+        if (files.count() != 2) {
+          return false; // a single snapshot and its log are left
+        }
+      }
+
+      // (4) files which are not part of the gallery
+      String[] strays = {"log-old", "snapshot-1.bak", "notes.tmp", "snapshot-.tmp"};
+      for (String stray : strays) {
+        Files.write(directory.resolve(stray), new byte[] {1, 2, 3});
+      }
+      try (DurableArtGallery gallery = DurableArtGallery.open(directory, true, 4096)) {
+        if (!gallery.toString().equals(expected)) {
+          return false;
+        }
+        gallery.compact();
+      }
+      try (Stream<Path> files = Files.list(directory)) {
+        if (files.count() != 6) {
+          return false; // the stray files are left alone
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    } finally {
+      try {
+        if (directory != null) {
+          try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+              Files.delete(file);
+            }
+          }
+          Files.delete(directory);
+        }
+      } catch (IOException e) {
+        // nothing else to do
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of OffHeapArtGallery, comparing it with a balanced ArtGallery on random
+   * additions, lookups and purchases
+   *
+   * @return true if all the checks pass, false otherwise
+   */
+  public static boolean testOffHeapGallery() {
+
+    try {
+      OffHeapArtGallery offHeap = new OffHeapArtGallery();
+      ArtGallery gallery = new ArtGallery(true);
+      if (!offHeap.isEmpty() || offHeap.getBestArtwork() != null || !offHeap.toString().isEmpty()
+          || !offHeap.lookupAll(1900, 100).isEmpty()) {
+        return false;
+      }
+
+      // (1) random additions and purchases, with names sharing their prefixes and costs ties
+      Random random = new Random(22);
+      for (int i = 0; i < 20000; i++) {
+        String name = "Name " + random.nextInt(300) + (random.nextBoolean() ? "" : " \u00e9");
+        int year = 1900 + random.nextInt(20);
+        double cost = 1 + random.nextInt(50);
+        if (random.nextInt(3) > 0) {
+          if (offHeap.addArtwork(new Artwork(name, year, cost))
+              != gallery.addArtwork(new Artwork(name, year, cost))) {
+            return false;
+          }
+        } else {
+          boolean found = gallery.lookup(name, year, cost);
+          if (offHeap.lookup(name, year, cost) != found) {
+            return false;
+          }
+          if (found) {
+            gallery.buyArtwork(name, year, cost);
+            offHeap.buyArtwork(name, year, cost);
+          }
+        }
+        if (i % 1000 == 0 && !new HashSet<Artwork>(offHeap.lookupAll(year, cost))
+            .equals(new HashSet<Artwork>(gallery.lookupAll(year, cost)))) {
+          return false;
+        }
+      }
+
+      // (2) same content, balanced shape
+      if (offHeap.size() != gallery.size() || !offHeap.toString().equals(gallery.toString())
+          || !offHeap.getBestArtwork().equals(gallery.getBestArtwork())
+          || offHeap.height() > 1.45 * Math.log(offHeap.size() + 2) / Math.log(2)) {
+        return false;
+      }
+      for (int year = 1899; year <= 1920; year++) {
+        for (Artwork lookedUp : offHeap.lookupAll(year, 25)) {
+          if (lookedUp.getYear() != year || lookedUp.getCost() > 25) {
+            return false;
+          }
+        }
+        if (!new HashSet<Artwork>(offHeap.lookupAll(year, 25))
+            .equals(new HashSet<Artwork>(gallery.lookupAll(year, 25)))) {
+          return false;
+        }
+      }
+
+      // (3) a single crowded year, with records unlinked from the middle of the tree
+      OffHeapArtGallery crowded = new OffHeapArtGallery();
+      for (int i = 0; i < 3000; i++) {
+        crowded.addArtwork(new Artwork("Crowded " + i, 2000, 1 + i % 17));
+      }
+      for (int i = 0; i < 3000; i += 2) {
+        crowded.buyArtwork("Crowded " + i, 2000, 1000);
+      }
+      for (int i = 0; i < 3000; i++) {
+        if (crowded.lookup("Crowded " + i, 2000) != (i % 2 == 1)) {
+          return false;
+        }
+      }
+      if (crowded.size() != 1500 || crowded.lookupAll(2000, 1000).size() != 1500
+          || crowded.height() > 1.45 * Math.log(crowded.size() + 2) / Math.log(2)) {
+        return false;
+      }
+
+      // (4) errors
+      try {
+        offHeap.buyArtwork("Missing", 1900, 10);
+        return false;
+      } catch (NoSuchElementException e) {
+        // expected
+      }
+      try {
+        offHeap.addArtwork(null);
+        return false;
+      } catch (NullPointerException e) {
+        // expected
+      }
+
+      // (5) emptied then refilled, reusing the freed records
+      for (Artwork artwork : gallery.lookupAll(1900, 1000)) {
+        offHeap.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+        gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+      }
+      for (Artwork artwork : gallery) {
+        offHeap.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+      }
+      if (!offHeap.isEmpty() || offHeap.height() != 0 || offHeap.getBestArtwork() != null
+          || !offHeap.addArtwork(new Artwork("Guernica, Picasso", 1937, 3000))
+          || !offHeap.toString()
+              .equals("[(Name: Guernica, Picasso) (Year: 1937) (Cost: $3000.0)]\n")) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the lookup and buyArtwork overloads taking the key of an artwork as separate
+   * components: same results as the Artwork based methods, no validation, and no allocation
+   *
+   * @return true if all the checks pass, false otherwise
+   */
+  public static boolean testKeyOverloads() {
+
+    try {
+      ArtGallery gallery = new ArtGallery(true);
+      ConcurrentArtGallery concurrent = new ConcurrentArtGallery(true);
+      OffHeapArtGallery offHeap = new OffHeapArtGallery();
+      PersistentArtGallery persistent = new PersistentArtGallery();
+      String[] names = new String[500];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = "Name " + i;
+        Artwork artwork = new Artwork(names[i], 1900 + i % 40, 1 + i % 13);
+        gallery.addArtwork(artwork);
+        concurrent.addArtwork(artwork);
+        offHeap.addArtwork(artwork);
+        persistent = persistent.addArtwork(artwork);
+      }
+
+      // (1) same results as the validated methods, and no match for invalid keys
+      for (int i = 0; i < names.length; i++) {
+        int year = 1900 + i % 40;
+        if (!gallery.lookup(names[i], year) || gallery.lookup(names[i], year + 1)
+            || !concurrent.lookup(names[i], year) || !offHeap.lookup(names[i], year)
+            || !persistent.lookup(names[i], year, 1 + i % 13)) {
+          return false;
+        }
+      }
+      if (gallery.lookup("", 1900) || gallery.lookup("Name 0", 0) || offHeap.lookup(" ", 1900)) {
+        return false;
+      }
+      try {
+        gallery.lookup("", 1900, 10);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected, the validated method still checks the key
+      }
+      try {
+        gallery.lookup(null, 1900);
+        return false;
+      } catch (NullPointerException e) {
+        // expected
+      }
+
+      // (2) no allocation once warmed up
+      long found = 0;
+      for (int round = 0; round < 3; round++) {
+        long before = ArtGalleryBenchmark.allocatedBytes();
+        for (int i = 0; i < 100000; i++) {
+          String name = names[i % names.length];
+          int year = 1900 + i % 40;
+          found += (gallery.lookup(name, year) ? 1 : 0) + (concurrent.lookup(name, year) ? 1 : 0)
+              + (offHeap.lookup(name, year) ? 1 : 0)
+              + (persistent.lookup(name, year, 1 + i % 13) ? 1 : 0);
+        }
+        if (round == 2 && before >= 0 && ArtGalleryBenchmark.allocatedBytes() - before > 100000) {
+          return false; // less than a byte per call: only the measurement itself allocates
+        }
+      }
+      if (found == 0) {
+        return false;
+      }
+
+      // (3) purchases return the stored artwork
+      Artwork bought = gallery.buyArtwork("Name 7", 1907);
+      if (bought.getCost() != 8 || gallery.lookup("Name 7", 1907) || gallery.size() != 499
+          || !concurrent.buyArtwork("Name 7", 1907).equals(bought) || concurrent.size() != 499
+          || !gallery.toString().equals(concurrent.toString())) {
+        return false;
+      }
+      try {
+        gallery.buyArtwork("Name 7", 1907);
+        return false;
+      } catch (NoSuchElementException e) {
+        // expected
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of BPlusTreeArtGallery, comparing galleries of several fanouts with a
+   * balanced ArtGallery on random additions and purchases, so that leaves and inner nodes are
+   * split, borrow keys and are merged
+   *
+   * @return true if all the checks pass, false otherwise
+   */
+  public static boolean testBPlusTreeGallery() {
+
+    try {
+      try {
+        new BPlusTreeArtGallery(3);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      for (int fanout : new int[] {4, 5, 16, BPlusTreeArtGallery.DEFAULT_FANOUT}) {
+        BPlusTreeArtGallery tree = new BPlusTreeArtGallery(fanout);
+        ArtGallery gallery = new ArtGallery(true);
+        if (!tree.isEmpty() || tree.height() != 0 || tree.getBestArtwork() != null
+            || !tree.toString().isEmpty() || !tree.lookupAll(1900, 100).isEmpty()
+            || tree.iterator().hasNext()) {
+          return false;
+        }
+
+        // (1) random additions and purchases, growing then shrinking the tree
+        Random random = new Random(fanout);
+        for (int i = 0; i < 30000; i++) {
+          String name = "Name " + random.nextInt(400);
+          int year = 1900 + random.nextInt(30);
+          double cost = 1 + random.nextInt(40);
+          if (random.nextInt(10) < (i < 15000 ? 7 : 3)) {
+            if (tree.addArtwork(new Artwork(name, year, cost))
+                != gallery.addArtwork(new Artwork(name, year, cost))) {
+              return false;
+            }
+          } else if (tree.lookup(name, year, cost) != gallery.lookup(name, year, cost)) {
+            return false;
+          } else if (gallery.lookup(name, year)) {
+            gallery.buyArtwork(name, year, cost);
+            if (!tree.buyArtwork(name, year).getName().equals(name)) {
+              return false;
+            }
+          }
+
+          if (i % 500 == 0 && (tree.size() != gallery.size()
+              || !tree.toString().equals(gallery.toString()) || !new HashSet<Artwork>(
+                  tree.lookupAll(year, cost)).equals(new HashSet<Artwork>(
+                      gallery.lookupAll(year, cost))))) {
+            return false;
+          }
+        }
+
+        // (2) range iterators and best artwork
+        if (!tree.toString().equals(gallery.toString())
+            || !tree.getBestArtwork().equals(gallery.getBestArtwork())
+            || tree.height() > 1 + Math.log(tree.size()) / Math.log((fanout + 1) / 2)) {
+          return false;
+        }
+        for (int fromYear = 1899; fromYear <= 1931; fromYear += 4) {
+          Iterator<Artwork> expected = gallery.iterator(fromYear, fromYear + 5);
+          Iterator<Artwork> actual = tree.iterator(fromYear, fromYear + 5);
+          while (expected.hasNext()) {
+            if (!actual.hasNext() || !actual.next().equals(expected.next())) {
+              return false;
+            }
+          }
+          if (actual.hasNext()) {
+            return false;
+          }
+        }
+        for (int year = 1899; year <= 1931; year++) {
+          double previous = 0;
+          for (Artwork artwork : tree.lookupAll(year, 20)) {
+            if (artwork.getYear() != year || artwork.getCost() > 20
+                || artwork.getCost() < previous) {
+              return false; // in increasing order of cost
+            }
+            previous = artwork.getCost();
+          }
+        }
+
+        // (3) emptied
+        for (Artwork artwork : new ArrayList<Artwork>(gallery.lookupAll(1910, 1000))) {
+          tree.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+          gallery.buyArtwork(artwork.getName(), artwork.getYear(), artwork.getCost());
+        }
+        if (!tree.toString().equals(gallery.toString())) {
+          return false;
+        }
+        for (Artwork artwork : gallery) {
+          tree.buyArtwork(artwork.getName(), artwork.getYear());
+        }
+        if (!tree.isEmpty() || tree.height() != 0 || tree.getBestArtwork() != null
+            || tree.iterator(1900, 2000).hasNext()) {
+          return false;
+        }
+        try {
+          tree.buyArtwork("Name 1", 1900, 1);
+          return false;
+        } catch (NoSuchElementException e) {
+          // expected
+        }
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the result cache of CachedArtGallery: same results as an uncached gallery, hits and
+   * misses, invalidation of the updated year only, least recently used eviction, and a bounded
+   * number of tracked years
+   *
+   * @return true if all the checks pass, false otherwise
+   */
+  public static boolean testResultCache() {
+
+    try {
+      try {
+        new CachedArtGallery(0);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      // (1) hits, misses, and invalidation per year
+      CachedArtGallery cached = new CachedArtGallery(new ArtGallery(true), 2);
+      if (cached.getBestArtwork() != null || cached.hitRatio() != 0) {
+        return false;
+      }
+      cached.addArtwork(new Artwork("Guernica, Picasso", 1937, 3000));
+      cached.addArtwork(new Artwork("Starry Night, Van Gogh", 1889, 2000));
+      cached.addArtwork(new Artwork("The Scream, Munch", 1893, 1500));
+      if (cached.lookupAll(1937, 5000).size() != 1 || cached.lookupAll(1889, 5000).size() != 1
+          || cached.getHits() != 0 || cached.getMisses() != 3) {
+        return false;
+      }
+      try {
+        cached.lookupAll(1937, 5000).clear(); // must not clear the cached result
+        return false;
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+      if (cached.lookupAll(1937, 5000).size() != 1 || cached.getHits() != 2) {
+        return false;
+      }
+      cached.addArtwork(new Artwork("Irises, Van Gogh", 1889, 1000));
+      if (cached.lookupAll(1937, 5000).size() != 1 || cached.getHits() != 3
+          || cached.lookupAll(1889, 5000).size() != 2 || cached.getMisses() != 4) {
+        return false; // only the results of 1889 were invalidated
+      }
+      cached.buyArtwork("Irises, Van Gogh", 1889);
+      if (cached.lookupAll(1889, 5000).size() != 1 || cached.getMisses() != 5) {
+        return false;
+      }
+
+      // (2) least recently used eviction
+      cached.lookupAll(1937, 5000); // hit, 1889 is now the least recently used
+      cached.lookupAll(1893, 5000); // miss, evicts 1889
+      if (cached.getEvictions() != 1 || cached.getHits() != 4 || cached.getMisses() != 6) {
+        return false;
+      }
+      cached.lookupAll(1889, 5000);
+      cached.lookupAll(1893, 5000);
+      if (cached.getHits() != 5 || cached.getMisses() != 7
+          || Math.abs(cached.hitRatio() - 5.0 / 12) > 1e-9) {
+        return false;
+      }
+
+      // (3) best artwork, invalidated by its year or by a later year
+      if (!cached.getBestArtwork().getName().equals("Guernica, Picasso")
+          || !cached.getBestArtwork().getName().equals("Guernica, Picasso")
+          || cached.getHits() != 6) {
+        return false;
+      }
+      cached.addArtwork(new Artwork("Mona Lisa, Da Vinci", 1503, 5000));
+      if (!cached.getBestArtwork().getName().equals("Guernica, Picasso")
+          || cached.getHits() != 7) {
+        return false; // an earlier year does not change the best artwork
+      }
+      cached.addArtwork(new Artwork("Campbell's Soup Cans, Warhol", 1962, 10));
+      if (!cached.getBestArtwork().getName().equals("Campbell's Soup Cans, Warhol")) {
+        return false;
+      }
+      cached.buyArtwork("Campbell's Soup Cans, Warhol", 1962, 10);
+      if (!cached.getBestArtwork().getName().equals("Guernica, Picasso")) {
+        return false;
+      }
+
+      // (4) same results as an uncached gallery on random updates and repeated queries
+      Random random = new Random(25);
+      cached = new CachedArtGallery(new ArtGallery(true), 16);
+      ArtGallery gallery = new ArtGallery(true);
+      for (int i = 0; i < 20000; i++) {
+        String name = "Name " + random.nextInt(100);
+        int year = 1900 + random.nextInt(10);
+        double cost = 1 + random.nextInt(5) * 10;
+        int operation = random.nextInt(20);
+        if (operation == 0) {
+          if (cached.addArtwork(new Artwork(name, year, cost))
+              != gallery.addArtwork(new Artwork(name, year, cost))) {
+            return false;
+          }
+        } else if (operation == 1) {
+          if (gallery.lookup(name, year)) {
+            gallery.buyArtwork(name, year, cost);
+            cached.buyArtwork(name, year, cost);
+          }
+        } else if (operation == 2) {
+          Artwork expected = gallery.getBestArtwork();
+          Artwork actual = cached.getBestArtwork();
+          if (expected == null ? actual != null : !expected.equals(actual)) {
+            return false;
+          }
+        } else if (!cached.lookupAll(year, cost).equals(gallery.lookupAll(year, cost))) {
+          return false;
+        }
+      }
+      if (cached.getHits() == 0 || cached.getEvictions() == 0
+          || !cached.toString().equals(gallery.toString())) {
+        return false;
+      }
+
+      // (5) epochs are only kept for the years of the cached results
+      cached = new CachedArtGallery(new ArtGallery(true), 4);
+      for (int year = 1000; year < 3000; year++) {
+        cached.addArtwork(new Artwork("Name", year, 10));
+        if (cached.lookupAll(year, 10).size() != 1 || cached.trackedYears() > 5) {
+          return false;
+        }
+        cached.getBestArtwork();
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks the correctness of LiveArtGallery. (1) Updates made by concurrent threads are all
+   * published, none of them being lost. (2) A snapshot does not change when later updates are
+   * published. (3) Buying a missing artwork throws a NoSuchElementException and publishes nothing.
+   * 
+   * @return true when this test verifies a correct functionality, and false otherwise
+   */
+  public static boolean testLiveGallery() {
+
+    try {
+      // (1) concurrent updates
+      LiveArtGallery live = new LiveArtGallery();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int thread = 0; thread < 4; thread++) {
+        int first = thread * 500;
+        results.add(executor.submit(() -> {
+          int added = 0;
+          for (int i = first; i < first + 500; i++) {
+            if (live.addArtwork(new Artwork("Name " + i % 1500, 1500 + i % 1500, 1 + i % 7))) {
+              added++;
+            }
+          }
+          return added;
+        }));
+      }
+      int added = 0;
+      for (Future<Integer> result : results) {
+        added += result.get();
+      }
+      executor.shutdown();
+      if (added != 1500 || live.size() != 1500 || live.snapshot().height() > 15) {
+        return false;
+      }
+
+      // (2) snapshots
+      PersistentArtGallery snapshot = live.snapshot();
+      String before = snapshot.toString();
+      live.buyArtwork("Name 0", 1500, 1);
+      if (!snapshot.toString().equals(before) || !snapshot.lookup("Name 0", 1500)
+          || live.snapshot().lookup("Name 0", 1500) || live.size() != 1499) {
+        return false;
+      }
+
+      // (3) missing artwork
+      PersistentArtGallery latest = live.snapshot();
+      try {
+        live.buyArtwork("Name 0", 1500, 1);
+        return false;
+      } catch (NoSuchElementException e) {
+      }
+      if (live.snapshot() != latest) {
+        return false;
+      }
+
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true;
+  }
+
   public static boolean additional() {
     ArtGallery gallery = new ArtGallery();
     System.out.println("Size: " + gallery.size() + " Height: " + gallery.height() + "\nGallery:");
@@ -710,7 +2695,15 @@ public class ArtGalleryTester {
   public static boolean runAllTests() {
 
     return testArtworkCompareToEquals() && testAddArtworkToStringSize() && testLookup()
-        && testHeight() && testGetBestArtwork() && testLookupAll() && testBuyArtwork();
+        && testHeight() && testGetBestArtwork() && testLookupAll() && testBuyArtwork()
+        && testBalancedGallery() && testDeepGallery() && testWriteTo()
+        && testLookupAllCollectionStream() && testOrderStatistics()
+        && testStoredHeights() && testBulkLoad() && testConcurrentGallery()
+        && testPersistentGallery() && testFrozenGallery() && testNameDictionary()
+        && testHashIndex() && testCostIndex() && testNameSearch() && testBatchRemoval()
+        && testIterators() && testAggregations() && testRangeAggregates() && testSnapshot()
+        && testDurableGallery() && testOffHeapGallery() && testKeyOverloads()
+        && testBPlusTreeGallery() && testResultCache() && testLiveGallery();
     // && additional();
 
   }
@@ -728,6 +2721,31 @@ public class ArtGalleryTester {
     System.out.println("testGetBestArtwork(): " + testGetBestArtwork());
     System.out.println("testLookupAll(): " + testLookupAll());
     System.out.println("testBuyArtwork(): " + testBuyArtwork());
+    System.out.println("testBalancedGallery(): " + testBalancedGallery());
+    System.out.println("testDeepGallery(): " + testDeepGallery());
+    System.out.println("testWriteTo(): " + testWriteTo());
+    System.out.println("testLookupAllCollectionStream(): " + testLookupAllCollectionStream());
+    System.out.println("testOrderStatistics(): " + testOrderStatistics());
+    System.out.println("testStoredHeights(): " + testStoredHeights());
+    System.out.println("testBulkLoad(): " + testBulkLoad());
+    System.out.println("testConcurrentGallery(): " + testConcurrentGallery());
+    System.out.println("testPersistentGallery(): " + testPersistentGallery());
+    System.out.println("testFrozenGallery(): " + testFrozenGallery());
+    System.out.println("testNameDictionary(): " + testNameDictionary());
+    System.out.println("testHashIndex(): " + testHashIndex());
+    System.out.println("testCostIndex(): " + testCostIndex());
+    System.out.println("testNameSearch(): " + testNameSearch());
+    System.out.println("testBatchRemoval(): " + testBatchRemoval());
+    System.out.println("testIterators(): " + testIterators());
+    System.out.println("testAggregations(): " + testAggregations());
+    System.out.println("testRangeAggregates(): " + testRangeAggregates());
+    System.out.println("testSnapshot(): " + testSnapshot());
+    System.out.println("testDurableGallery(): " + testDurableGallery());
+    System.out.println("testOffHeapGallery(): " + testOffHeapGallery());
+    System.out.println("testKeyOverloads(): " + testKeyOverloads());
+    System.out.println("testBPlusTreeGallery(): " + testBPlusTreeGallery());
+    System.out.println("testResultCache(): " + testResultCache());
+    System.out.println("testLiveGallery(): " + testLiveGallery());
     System.out.println("runAllTests(): " + runAllTests());
     // System.out.println(additional());
   }
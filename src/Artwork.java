@@ -26,16 +26,30 @@ public class Artwork implements Comparable<Artwork> {
    */
   public Artwork(String name, int year, double cost) {
     // check the validity of the input parameters
+    validate(name, year, cost);
+    // assign the artwork attributes
+    this.year = year;
+    this.cost = cost;
+    this.name = name;
+  }
+
+  /**
+   * Checks the validity of the attributes of an artwork without creating it, so that the methods
+   * taking an artwork key as separate components can reject invalid keys without allocating
+   * 
+   * @param name name of the artwork piece, artist
+   * @param year year of creation of the artwork piece
+   * @param cost the cost of the artwork piece in dollars
+   * @throws an IllegalArgumentException if year is less than 1000, if cost is negative or zero or
+   *            if name is null or an empty string
+   */
+  protected static void validate(String name, int year, double cost) {
     if (year < 1000)
       throw new IllegalArgumentException("Invalid year of creation. Too old.");
     if (cost <= 0.0)
       throw new IllegalArgumentException("Invalid cost. The cost must be positive");
     if (name == null || name.isBlank())
       throw new IllegalArgumentException("Invalid artwork name");
-    // assign the artwork attributes
-    this.year = year;
-    this.cost = cost;
-    this.name = name;
   }
 
   /**
@@ -67,6 +81,31 @@ public class Artwork implements Comparable<Artwork> {
     return name;
   }
 
+  /**
+   * Compares the name of this artwork with the name of another artwork in lexical order
+   * 
+   * @param otherArtwork other artwork
+   * @return 0 if both names are equal, an integer less than 0 if the name of this artwork comes
+   *         first in lexical order, and an integer greater than 0 otherwise
+   */
+  protected int compareNames(Artwork otherArtwork) {
+
+    return this.getName().compareTo(otherArtwork.getName());
+
+  }
+
+  /**
+   * Checks whether this artwork has the same name as another artwork
+   * 
+   * @param otherArtwork other artwork
+   * @return true if both artworks have the same name, false otherwise
+   */
+  protected boolean hasSameName(Artwork otherArtwork) {
+
+    return this.getName().equals(otherArtwork.getName());
+
+  }
+
   /**
    * Compares two artwork pieces for ordering with respect to their years, costs, and names
    * 
@@ -83,7 +122,7 @@ public class Artwork implements Comparable<Artwork> {
 
     // if otherArtwork has the same year of creation, same name, and same cost
     if (this.getYear() == otherArtwork.getYear() && this.getCost() == otherArtwork.getCost()
-        && this.getName().equals(otherArtwork.getName())) {
+        && this.hasSameName(otherArtwork)) {
 
       return 0;
 
@@ -99,7 +138,7 @@ public class Artwork implements Comparable<Artwork> {
 
     } else if ((this.getYear() == otherArtwork.getYear())
         && (this.getCost() == otherArtwork.getCost())
-        && (this.getName().compareTo(otherArtwork.getName()) < 0)) {
+        && (this.compareNames(otherArtwork) < 0)) {
       return -1;
 
     } else { // other case (other art work is larger)
@@ -110,6 +149,40 @@ public class Artwork implements Comparable<Artwork> {
 
   }
 
+  /**
+   * Compares this artwork with an artwork key given by its components, in the same order as
+   * compareTo(Artwork), without creating an artwork for the key
+   * 
+   * @param year year of creation of the key
+   * @param cost cost of the key
+   * @param name name of the key
+   * @return 0 if this artwork has the same year, cost and name as the key, an integer less than 0
+   *         if this artwork comes before the key, and an integer greater than 0 otherwise
+   */
+  public int compareTo(int year, double cost, String name) {
+
+    if (this.getYear() != year) {
+      return this.getYear() < year ? -1 : 1; // different years
+    }
+    if (this.getCost() != cost) {
+      return this.getCost() < cost ? -1 : 1; // same year, different costs
+    }
+    return Integer.signum(this.getName().compareTo(name));
+
+  }
+
+  /**
+   * Checks whether this artwork has a given name and year of creation, that is whether it equals
+   * an artwork of that name and year, without creating one
+   * 
+   * @param name name to compare with
+   * @param year year of creation to compare with
+   * @return true if this artwork has that name and year, false otherwise
+   */
+  public boolean hasKey(String name, int year) {
+    return this.getYear() == year && this.getName().equals(name);
+  }
+
   /**
    * Checks whether this artwork equals to another object passed as input
    * 
@@ -123,7 +196,7 @@ public class Artwork implements Comparable<Artwork> {
     if (obj instanceof Artwork) { // check if obj is object of Artwork
 
       Artwork obj1 = (Artwork) obj; // make object casted to Artwork
-      if (this.getYear() == obj1.getYear() && this.getName().equals(obj1.getName())) {
+      if (this.getYear() == obj1.getYear() && this.hasSameName(obj1)) {
         return true; // equal
 
       }
@@ -132,6 +205,17 @@ public class Artwork implements Comparable<Artwork> {
     return false; // not equal
   }
 
+  /**
+   * Returns a hash code for this artwork, computed from its name and year of creation only so that
+   * equal artworks have the same hash code whatever their cost
+   * 
+   * @return the hash code of this artwork
+   */
+  @Override
+  public int hashCode() {
+    return 31 * this.getName().hashCode() + this.getYear();
+  }
+
   /**
    * Returns a String representation of the artwork attributes
    * 
@@ -0,0 +1,172 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ArtworkIndex.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class models a hash index of artworks keyed by their name and year of creation, which is
+ * the identity of an artwork according to Artwork.equals(). It is an open addressing hash table
+ * with linear probing: artworks are stored directly in an array, and an artwork is searched from
+ * the slot given by the hash of its key to the first empty slot. Searches take the key components
+ * directly, so they do not need to create any object.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class ArtworkIndex {
+
+  private static final int INITIAL_CAPACITY = 16; // number of slots of a new index
+  private Artwork[] table; // slots of the hash table, null if empty; its length is a power of 2
+  private int size; // number of artworks stored in this index
+
+  /**
+   * Creates a new empty ArtworkIndex
+   */
+  public ArtworkIndex() {
+    this.table = new Artwork[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Computes the hash of a key, consistent with Artwork.hashCode()
+   *
+   * @param name name of the artwork
+   * @param year year of creation of the artwork
+   * @return the hash of the key, with its high bits mixed into its low bits
+   */
+  protected static int hash(String name, int year) {
+    return hash(name.hashCode(), year);
+  }
+
+  /**
+   * Computes the hash of a key from the hash code of its name, so that a name which is not stored
+   * as a String can be hashed consistently with Artwork.hashCode()
+   *
+   * @param nameHash hash code of the name of the artwork, as computed by String.hashCode()
+   * @param year     year of creation of the artwork
+   * @return the hash of the key, with its high bits mixed into its low bits
+   */
+  protected static int hash(int nameHash, int year) {
+    int hash = 31 * nameHash + year;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Gets the artwork of a given name and year
+   *
+   * @param name name of the artwork
+   * @param year year of creation of the artwork
+   * @return the artwork of that name and year stored in this index, or null if there is none
+   */
+  public Artwork get(String name, int year) {
+
+    Artwork[] table = this.table;
+    int mask = table.length - 1;
+    for (int slot = hash(name, year) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+      Artwork artwork = table[slot];
+      if (artwork.getYear() == year && artwork.getName().equals(name)) {
+        return artwork;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds an artwork to this index, unless there is already an artwork of the same name and year
+   *
+   * @param artwork artwork to add
+   * @return true if artwork was added, false if an artwork of the same name and year is already
+   *         stored in this index
+   */
+  public boolean add(Artwork artwork) {
+
+    int mask = table.length - 1;
+    int slot = hash(artwork.getName(), artwork.getYear()) & mask;
+
+    while (table[slot] != null) {
+      if (table[slot].equals(artwork)) {
+        return false; // same name and year
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    table[slot] = artwork;
+    size++;
+
+    // keep the load factor at most 1/2 so that probe sequences stay short
+    if (2 * size > table.length) {
+      resize(2 * table.length);
+    }
+    return true;
+  }
+
+  /**
+   * Removes the artwork of a given name and year from this index. The artworks following it in
+   * its probe sequence are shifted back, so that no search stops at the freed slot too early.
+   *
+   * @param name name of the artwork
+   * @param year year of creation of the artwork
+   * @return the removed artwork, or null if there is no artwork of that name and year
+   */
+  public Artwork remove(String name, int year) {
+
+    int mask = table.length - 1;
+    int slot = hash(name, year) & mask;
+
+    while (table[slot] != null
+        && !(table[slot].getYear() == year && table[slot].getName().equals(name))) {
+      slot = (slot + 1) & mask;
+    }
+
+    Artwork removed = table[slot];
+    if (removed == null) {
+      return null; // not found
+    }
+
+    // backward shift: move up every following artwork which may be reached from the freed slot
+    int free = slot;
+    for (int next = (free + 1) & mask; table[next] != null; next = (next + 1) & mask) {
+      int home = hash(table[next].getName(), table[next].getYear()) & mask;
+      // next can move to free only if its home slot is not in the cyclic range (free, next]
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        table[free] = table[next];
+        free = next;
+      }
+    }
+    table[free] = null;
+    size--;
+
+    return removed;
+  }
+
+  /**
+   * Returns the number of artworks stored in this index
+   *
+   * @return the size of this index
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Moves all the artworks of this index to a new table
+   *
+   * @param capacity number of slots of the new table, a power of 2
+   */
+  private void resize(int capacity) {
+
+    Artwork[] oldTable = table;
+    table = new Artwork[capacity];
+    int mask = capacity - 1;
+
+    for (Artwork artwork : oldTable) {
+      if (artwork != null) {
+        int slot = hash(artwork.getName(), artwork.getYear()) & mask;
+        while (table[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = artwork;
+      }
+    }
+  }
+
+}
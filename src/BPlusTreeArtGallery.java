@@ -0,0 +1,819 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: BPlusTreeArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class models an Artwork Gallery backed by a B+tree instead of a binary search tree. Every
+ * node holds up to fanout sorted keys (or children) in an array, so a search visits
+ * O(log_fanout n) nodes and compares keys which sit next to each other in memory. All the
+ * artworks are stored in the leaves, which are linked in increasing order with respect to the
+ * result of Artwork.compareTo() method (year, cost, name): lookupAll(), the range iterators and
+ * toString() walk this chain of arrays instead of jumping between pointer nodes. The inner nodes
+ * only hold separators which guide the searches down to the leaves.
+ *
+ * The fanout is configurable so that the nodes can be sized to cache lines or to pages. Like
+ * ArtGallery, the gallery keeps a hash index of the artworks by name and year, so lookup() and
+ * buyArtwork() resolve their match in O(1) expected time.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class BPlusTreeArtGallery implements Iterable<Artwork> {
+
+  protected static final int DEFAULT_FANOUT = 64; // keys per node of a new gallery by default
+  private static final int MIN_FANOUT = 4; // smallest fanout keeping both halves of a split valid
+
+  private final int fanout; // maximum number of keys of a leaf and of children of an inner node
+  private final int minimum; // minimum number of keys or children of every node but the root
+  private final Leaf first; // leftmost leaf, head of the chain of leaves
+  private Node root; // root of the B+tree, a leaf while it is not split
+  private int height; // number of levels of the B+tree
+  private int size; // number of artworks stored in this gallery
+  private final ArtworkIndex index; // artworks stored in this gallery by name and year
+
+  /**
+   * Node of the B+tree. Its keys are kept sorted in the first count slots of an array which has
+   * one extra slot, so that a node may overflow by one key before it is split.
+   */
+  private abstract static class Node {
+
+    protected final Artwork[] keys; // sorted keys of this node
+    protected int count; // number of keys of a leaf, or number of children of an inner node
+
+    /**
+     * Creates a new empty node
+     *
+     * @param capacity number of slots of its key array
+     */
+    Node(int capacity) {
+      this.keys = new Artwork[capacity];
+    }
+  }
+
+  /**
+   * Leaf of the B+tree, holding count artworks in keys and linked to its neighbor leaves
+   */
+  private static class Leaf extends Node {
+
+    private Leaf previous; // leaf holding the previous artworks, null if this is the first leaf
+    private Leaf next; // leaf holding the following artworks, null if this is the last leaf
+
+    /**
+     * Creates a new empty leaf
+     *
+     * @param fanout maximum number of artworks of the leaf
+     */
+    Leaf(int fanout) {
+      super(fanout + 1);
+    }
+  }
+
+  /**
+   * Inner node of the B+tree, holding count children and count - 1 separators in keys. The
+   * artworks of the i-th child are greater than or equal to keys[i - 1] and less than keys[i].
+   */
+  private static class Inner extends Node {
+
+    private final Node[] children; // children of this node, ordered by their keys
+
+    /**
+     * Creates a new empty inner node
+     *
+     * @param fanout maximum number of children of the node
+     */
+    Inner(int fanout) {
+      super(fanout);
+      this.children = new Node[fanout + 1];
+    }
+  }
+
+  /**
+   * Creates a new empty BPlusTreeArtGallery with the default fanout
+   */
+  public BPlusTreeArtGallery() {
+    this(DEFAULT_FANOUT);
+  }
+
+  /**
+   * Creates a new empty BPlusTreeArtGallery with a given fanout
+   *
+   * @param fanout maximum number of artworks of a leaf and of children of an inner node
+   * @throws IllegalArgumentException if fanout is less than 4
+   */
+  public BPlusTreeArtGallery(int fanout) {
+
+    if (fanout < MIN_FANOUT) {
+      throw new IllegalArgumentException("Invalid fanout. The fanout must be at least "
+          + MIN_FANOUT);
+    }
+
+    this.fanout = fanout;
+    this.minimum = (fanout + 1) / 2;
+    this.first = new Leaf(fanout);
+    this.root = first;
+    this.height = 1;
+    this.index = new ArtworkIndex();
+  }
+
+  /**
+   * Gets the fanout of this gallery
+   *
+   * @return the maximum number of artworks of a leaf and of children of an inner node
+   */
+  public int getFanout() {
+    return this.fanout;
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the height of the B+tree storing this gallery, counting the number of levels. An
+   * empty gallery has a single empty leaf, whose height is 0.
+   *
+   * @return the height of this gallery
+   */
+  public int height() {
+    return this.size == 0 ? 0 : this.height;
+  }
+
+  /**
+   * Finds the position of the first key of a node which is not less than a given artwork
+   *
+   * @param node    node to search
+   * @param artwork artwork to search
+   * @param count   number of keys of node
+   * @return the position of the first key greater than or equal to artwork, or count if there is
+   *         none
+   */
+  private static int lowerBound(Node node, Artwork artwork, int count) {
+
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (node.keys[middle].compareTo(artwork) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Finds the child of an inner node whose subtree holds a given artwork, or would hold it
+   *
+   * @param node    inner node
+   * @param artwork artwork to search
+   * @return the position of the child in node
+   */
+  private static int childOf(Inner node, Artwork artwork) {
+
+    // number of separators less than or equal to artwork
+    int low = 0;
+    int high = node.count - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (node.keys[middle].compareTo(artwork) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost. The match is
+   * searched in the hash index of the gallery, so it is found even if cost differs from the cost
+   * of the stored artwork.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this gallery, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name and year, without creating any
+   * object and without checking the validity of the key: an invalid key has no match.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    return index.get(name, year) != null;
+  }
+
+  /**
+   * Adds a new artwork piece to this gallery. The artwork is inserted in its leaf, and every node
+   * which overflows on the way back to the root is split into two halves.
+   *
+   * @param newArtwork a new Artwork to add to this gallery
+   * @return true if the newArtwork was successfully added to this gallery, and returns false if
+   *         there is a match with this Artwork (same name and year) already stored in gallery.
+   * @throws NullPointerException if newArtwork is null
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    if (newArtwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+    if (!index.add(newArtwork)) {
+      return false; // match already stored
+    }
+
+    // walk down to the leaf, keeping the path of inner nodes and of child positions
+    Inner[] path = new Inner[height - 1];
+    int[] positions = new int[height - 1];
+    Node node = root;
+    for (int level = 0; level < height - 1; level++) {
+      Inner inner = (Inner) node;
+      path[level] = inner;
+      positions[level] = childOf(inner, newArtwork);
+      node = inner.children[positions[level]];
+    }
+
+    Leaf leaf = (Leaf) node;
+    int position = lowerBound(leaf, newArtwork, leaf.count);
+    System.arraycopy(leaf.keys, position, leaf.keys, position + 1, leaf.count - position);
+    leaf.keys[position] = newArtwork;
+    leaf.count++;
+    size++;
+
+    if (leaf.count <= fanout) {
+      return true; // no overflow
+    }
+
+    // split the leaf, then every inner node which overflows in turn
+    Node sibling = splitLeaf(leaf);
+    Artwork separator = sibling.keys[0];
+    for (int level = height - 2; level >= 0; level--) {
+      Inner parent = path[level];
+      insertChild(parent, positions[level] + 1, separator, sibling);
+      if (parent.count <= fanout) {
+        return true; // no overflow
+      }
+      separator = parent.keys[(parent.count + 1) / 2 - 1]; // moves up to the next level
+      sibling = splitInner(parent);
+    }
+
+    // the root was split: the tree grows by one level
+    Inner newRoot = new Inner(fanout);
+    newRoot.children[0] = root;
+    newRoot.children[1] = sibling;
+    newRoot.keys[0] = separator;
+    newRoot.count = 2;
+    root = newRoot;
+    height++;
+    return true;
+  }
+
+  /**
+   * Inserts a child and its separator in an inner node, which may overflow by one child
+   *
+   * @param parent    inner node
+   * @param position  position of the new child in parent
+   * @param separator first key of the subtree of the new child
+   * @param child     new child
+   */
+  private static void insertChild(Inner parent, int position, Artwork separator, Node child) {
+
+    System.arraycopy(parent.children, position, parent.children, position + 1,
+        parent.count - position);
+    System.arraycopy(parent.keys, position - 1, parent.keys, position,
+        parent.count - position);
+    parent.children[position] = child;
+    parent.keys[position - 1] = separator;
+    parent.count++;
+  }
+
+  /**
+   * Splits an overflowing leaf, moving its upper half to a new leaf linked after it
+   *
+   * @param leaf leaf holding fanout + 1 artworks
+   * @return the new leaf
+   */
+  private Leaf splitLeaf(Leaf leaf) {
+
+    Leaf sibling = new Leaf(fanout);
+    int kept = leaf.count / 2;
+    sibling.count = leaf.count - kept;
+    System.arraycopy(leaf.keys, kept, sibling.keys, 0, sibling.count);
+    Arrays.fill(leaf.keys, kept, leaf.count, null);
+    leaf.count = kept;
+
+    // link the new leaf into the chain
+    sibling.next = leaf.next;
+    sibling.previous = leaf;
+    if (leaf.next != null) {
+      leaf.next.previous = sibling;
+    }
+    leaf.next = sibling;
+    return sibling;
+  }
+
+  /**
+   * Splits an overflowing inner node, moving its upper half to a new inner node. The separator
+   * between both halves is removed from the node, since it moves up to the parent.
+   *
+   * @param node inner node holding fanout + 1 children
+   * @return the new inner node
+   */
+  private Inner splitInner(Inner node) {
+
+    Inner sibling = new Inner(fanout);
+    int kept = (node.count + 1) / 2;
+    sibling.count = node.count - kept;
+    System.arraycopy(node.children, kept, sibling.children, 0, sibling.count);
+    System.arraycopy(node.keys, kept, sibling.keys, 0, sibling.count - 1);
+    Arrays.fill(node.children, kept, node.count, null);
+    Arrays.fill(node.keys, kept - 1, node.count - 1, null);
+    node.count = kept;
+    return sibling;
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost. The match is resolved in the hash
+   * index first, so the artwork is found from the full key of the stored artwork even if cost
+   * differs from its cost.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public void buyArtwork(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    buyArtwork(name, year);
+  }
+
+  /**
+   * Buy the artwork of a given name and year. The artwork is removed from its leaf, and every node
+   * which underflows on the way back to the root borrows a key from a sibling, or is merged with
+   * it if the sibling has no key to spare.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @return the bought artwork, as it was stored in this gallery
+   * @throws NullPointerException if name is null
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public Artwork buyArtwork(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    Artwork stored = index.remove(name, year);
+    if (stored == null) {
+      throw new NoSuchElementException("No match found");
+    }
+
+    // walk down to the leaf, keeping the path of inner nodes and of child positions
+    Inner[] path = new Inner[height - 1];
+    int[] positions = new int[height - 1];
+    Node node = root;
+    for (int level = 0; level < height - 1; level++) {
+      Inner inner = (Inner) node;
+      path[level] = inner;
+      positions[level] = childOf(inner, stored);
+      node = inner.children[positions[level]];
+    }
+
+    Leaf leaf = (Leaf) node;
+    int position = lowerBound(leaf, stored, leaf.count);
+    leaf.count--;
+    System.arraycopy(leaf.keys, position + 1, leaf.keys, position, leaf.count - position);
+    leaf.keys[leaf.count] = null;
+    size--;
+
+    // fix the underflowing nodes from the leaf up to the children of the root
+    for (int level = height - 2; level >= 0 && node.count < minimum; level--) {
+      Inner parent = path[level];
+      if (node instanceof Leaf) {
+        rebalanceLeaf(parent, positions[level]);
+      } else {
+        rebalanceInner(parent, positions[level]);
+      }
+      node = parent;
+    }
+
+    // a root left with a single child is removed: the tree shrinks by one level
+    if (root instanceof Inner && root.count == 1) {
+      root = ((Inner) root).children[0];
+      height--;
+    }
+    return stored;
+  }
+
+  /**
+   * Fixes an underflowing leaf by borrowing an artwork from a sibling leaf, or by merging it with
+   * a sibling if both have the minimum number of artworks
+   *
+   * @param parent   parent of the leaf
+   * @param position position of the leaf in parent
+   */
+  private void rebalanceLeaf(Inner parent, int position) {
+
+    Leaf leaf = (Leaf) parent.children[position];
+    Leaf left = position > 0 ? (Leaf) parent.children[position - 1] : null;
+    Leaf right = position + 1 < parent.count ? (Leaf) parent.children[position + 1] : null;
+
+    if (left != null && left.count > minimum) {
+      // the last artwork of the left sibling moves to the front of the leaf
+      System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.count);
+      leaf.keys[0] = left.keys[--left.count];
+      left.keys[left.count] = null;
+      leaf.count++;
+      parent.keys[position - 1] = leaf.keys[0];
+    } else if (right != null && right.count > minimum) {
+      // the first artwork of the right sibling moves to the end of the leaf
+      leaf.keys[leaf.count++] = right.keys[0];
+      right.count--;
+      System.arraycopy(right.keys, 1, right.keys, 0, right.count);
+      right.keys[right.count] = null;
+      parent.keys[position] = right.keys[0];
+    } else if (left != null) {
+      mergeLeaves(parent, position - 1);
+    } else {
+      mergeLeaves(parent, position);
+    }
+  }
+
+  /**
+   * Merges two neighbor leaves into the left one, and removes the right one from the chain of
+   * leaves and from their parent
+   *
+   * @param parent   parent of both leaves
+   * @param position position of the left leaf in parent
+   */
+  private static void mergeLeaves(Inner parent, int position) {
+
+    Leaf left = (Leaf) parent.children[position];
+    Leaf right = (Leaf) parent.children[position + 1];
+    System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+    left.count += right.count;
+
+    left.next = right.next;
+    if (right.next != null) {
+      right.next.previous = left;
+    }
+    removeChild(parent, position + 1);
+  }
+
+  /**
+   * Fixes an underflowing inner node by borrowing a child from a sibling, or by merging it with a
+   * sibling if both have the minimum number of children. The separators move through the parent.
+   *
+   * @param parent   parent of the inner node
+   * @param position position of the inner node in parent
+   */
+  private void rebalanceInner(Inner parent, int position) {
+
+    Inner node = (Inner) parent.children[position];
+    Inner left = position > 0 ? (Inner) parent.children[position - 1] : null;
+    Inner right = position + 1 < parent.count ? (Inner) parent.children[position + 1] : null;
+
+    if (left != null && left.count > minimum) {
+      // the last child of the left sibling becomes the first child of the node
+      System.arraycopy(node.children, 0, node.children, 1, node.count);
+      System.arraycopy(node.keys, 0, node.keys, 1, node.count - 1);
+      node.children[0] = left.children[left.count - 1];
+      node.keys[0] = parent.keys[position - 1];
+      node.count++;
+      parent.keys[position - 1] = left.keys[left.count - 2];
+      left.children[left.count - 1] = null;
+      left.keys[left.count - 2] = null;
+      left.count--;
+    } else if (right != null && right.count > minimum) {
+      // the first child of the right sibling becomes the last child of the node
+      node.children[node.count] = right.children[0];
+      node.keys[node.count - 1] = parent.keys[position];
+      node.count++;
+      parent.keys[position] = right.keys[0];
+      System.arraycopy(right.children, 1, right.children, 0, right.count - 1);
+      System.arraycopy(right.keys, 1, right.keys, 0, right.count - 2);
+      right.children[right.count - 1] = null;
+      right.keys[right.count - 2] = null;
+      right.count--;
+    } else if (left != null) {
+      mergeInner(parent, position - 1);
+    } else {
+      mergeInner(parent, position);
+    }
+  }
+
+  /**
+   * Merges two neighbor inner nodes into the left one, with the separator between them, and
+   * removes the right one from their parent
+   *
+   * @param parent   parent of both nodes
+   * @param position position of the left node in parent
+   */
+  private static void mergeInner(Inner parent, int position) {
+
+    Inner left = (Inner) parent.children[position];
+    Inner right = (Inner) parent.children[position + 1];
+    left.keys[left.count - 1] = parent.keys[position];
+    System.arraycopy(right.keys, 0, left.keys, left.count, right.count - 1);
+    System.arraycopy(right.children, 0, left.children, left.count, right.count);
+    left.count += right.count;
+    removeChild(parent, position + 1);
+  }
+
+  /**
+   * Removes a child, other than the first one, and the separator before it from an inner node
+   *
+   * @param parent   inner node
+   * @param position position of the child in parent, greater than 0
+   */
+  private static void removeChild(Inner parent, int position) {
+
+    parent.count--;
+    System.arraycopy(parent.children, position + 1, parent.children, position,
+        parent.count - position);
+    System.arraycopy(parent.keys, position, parent.keys, position - 1, parent.count - position);
+    parent.children[parent.count] = null;
+    parent.keys[parent.count - 1] = null;
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery)
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+
+    if (size == 0) {
+      return null;
+    }
+
+    Node node = root;
+    while (node instanceof Inner) {
+      node = ((Inner) node).children[node.count - 1];
+    }
+    return node.keys[node.count - 1];
+  }
+
+  /**
+   * Finds the leaf from which the chain of leaves holds the artworks created in a given year or
+   * later. The first such artwork is in that leaf, or at the beginning of the next one.
+   *
+   * @param year year of creation
+   * @return the leaf holding the first artwork created in year or later, or its previous leaf
+   */
+  private Leaf firstLeafFrom(int year) {
+
+    Node node = root;
+    while (node instanceof Inner) {
+      Inner inner = (Inner) node;
+      // number of separators created before year
+      int low = 0;
+      int high = inner.count - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (inner.keys[middle].getYear() < year) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      node = inner.children[low];
+    }
+    return (Leaf) node;
+  }
+
+  /**
+   * Finds the position of the first artwork of a leaf created in a given year or later
+   *
+   * @param leaf leaf to search
+   * @param year year of creation
+   * @return the position of the first artwork created in year or later, or the count of the leaf
+   *         if there is none
+   */
+  private static int firstPositionFrom(Leaf leaf, int year) {
+
+    int low = 0;
+    int high = leaf.count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (leaf.keys[middle].getYear() < year) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost, in increasing order of cost. If no artwork satisfies the lookup query, this
+   *         method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+
+    return lookupAll(year, cost, new ArrayList<Artwork>());
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value, and adds
+   * them to a given collection in increasing order of cost. The matches are read from the chain
+   * of leaves, starting from the first artwork of the year.
+   *
+   * @param <C>    type of the collection receiving the matches
+   * @param year   creation year of artwork
+   * @param cost   the maximum cost we would like to search for a artwork
+   * @param result collection to which every matching artwork is added
+   * @return result, after all the artwork objects whose year equals our lookup year key and
+   *         maximum cost have been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupAll(int year, double cost, C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    Leaf leaf = firstLeafFrom(year);
+    int position = firstPositionFrom(leaf, year);
+    while (leaf != null) {
+      for (; position < leaf.count; position++) {
+        Artwork artwork = leaf.keys[position];
+        if (artwork.getYear() != year || !ArtGallery.isAffordable(artwork, cost)) {
+          return result; // all the following artworks are after the year or more expensive
+        }
+        result.add(artwork);
+      }
+      leaf = leaf.next;
+      position = 0;
+    }
+    return result;
+  }
+
+  /**
+   * Returns an iterator over all the artworks of this gallery in increasing order with respect to
+   * the result of Artwork.compareTo() method (year, cost, name), walking the chain of leaves. This
+   * gallery must not be modified while the iterator is in use.
+   *
+   * @return an iterator over the artworks of this gallery in increasing order
+   */
+  @Override
+  public Iterator<Artwork> iterator() {
+    return new LeafIterator(first, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns an iterator over the artworks of this gallery created between two years, in
+   * increasing order with respect to the result of Artwork.compareTo() method. The first artwork
+   * of the range is found in O(log n) time, then the chain of leaves is walked until the last one.
+   *
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return an iterator over the artworks of the range in increasing order
+   */
+  public Iterator<Artwork> iterator(int fromYear, int toYear) {
+
+    Leaf leaf = firstLeafFrom(fromYear);
+    return new LeafIterator(leaf, firstPositionFrom(leaf, fromYear), toYear);
+  }
+
+  /**
+   * Writes all the artwork stored within this gallery to a given destination, in the same format
+   * and order as ArtGallery.toString()
+   *
+   * @param out destination of the String representation of this gallery
+   * @throws IOException if out fails to append a character sequence
+   */
+  public void writeTo(Appendable out) throws IOException {
+
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
+    }
+
+    for (Leaf leaf = first; leaf != null; leaf = leaf.next) {
+      for (int position = 0; position < leaf.count; position++) {
+        ArtGallery.writeArtwork(out, leaf.keys[position]);
+      }
+    }
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+
+    StringBuilder representation = new StringBuilder();
+    try {
+      writeTo(representation);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // never thrown by a StringBuilder
+    }
+    return representation.toString();
+  }
+
+  /**
+   * This class implements an iterator over the chain of leaves, from a given position up to the
+   * last artwork created in a given year.
+   */
+  private static class LeafIterator implements Iterator<Artwork> {
+
+    private final int toYear; // last year of the range
+    private Leaf leaf; // leaf of the next artwork, null if there is none
+    private int position; // position of the next artwork in leaf
+
+    /**
+     * Creates an iterator starting at a given position of a leaf
+     *
+     * @param leaf     leaf of the first artwork
+     * @param position position of the first artwork in leaf, possibly its count
+     * @param toYear   last year of the range, included
+     */
+    private LeafIterator(Leaf leaf, int position, int toYear) {
+      this.leaf = leaf;
+      this.position = position;
+      this.toYear = toYear;
+    }
+
+    /**
+     * Checks whether there is a next artwork in the range, moving to the next leaf if the current
+     * one is exhausted
+     *
+     * @return true if there is a next artwork, false otherwise
+     */
+    @Override
+    public boolean hasNext() {
+
+      while (leaf != null && position == leaf.count) {
+        leaf = leaf.next;
+        position = 0;
+      }
+      return leaf != null && leaf.keys[position].getYear() <= toYear;
+    }
+
+    /**
+     * Returns the next artwork of the range
+     *
+     * @return the next artwork
+     * @throws NoSuchElementException if there is no more artwork in the range
+     */
+    @Override
+    public Artwork next() {
+
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more artwork");
+      }
+      return leaf.keys[position++];
+    }
+  }
+
+}
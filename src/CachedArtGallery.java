@@ -0,0 +1,447 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CachedArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class models an Artwork Gallery which caches the results of its repeated queries. It wraps
+ * an ArtGallery and keeps the results of the most recently used lookupAll() queries, up to a given
+ * capacity, and the result of getBestArtwork(). Every year has an epoch counter, which
+ * addArtwork() and buyArtwork() increment when they change the artworks of that year. A cached
+ * result remembers the epoch of its year when it was computed, and it is only used while that
+ * epoch is current: an update invalidates the results of its own year only, without scanning the
+ * cache. An epoch is only kept while a cached result refers to its year, so at most capacity + 1
+ * epochs are stored however many years are updated. The numbers of hits, misses and evictions are
+ * counted so that the capacity can be sized.
+ *
+ * This class is not thread-safe, and the wrapped gallery must only be modified through it.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class CachedArtGallery {
+
+  private final ArtGallery gallery; // wrapped gallery
+  private final int capacity; // maximum number of cached lookupAll() results
+  private final LinkedHashMap<Query, CachedResult> results; // cached results, in access order
+  private final HashMap<Integer, Epoch> epochs; // epoch of every year referred to by the cache
+  private Artwork best; // cached result of getBestArtwork(), valid only if bestCached
+  private long bestEpoch; // epoch of the year of best when it was cached
+  private boolean bestCached; // true if best may be used
+  private long hits; // number of queries answered from the cache
+  private long misses; // number of queries answered by the gallery
+  private long evictions; // number of results evicted to respect the capacity
+
+  /**
+   * Key of a cached lookupAll() query
+   */
+  private static class Query {
+
+    private final int year; // year of creation of the searched artworks
+    private final double cost; // maximum cost of the searched artworks
+
+    /**
+     * Creates the key of a query
+     *
+     * @param year year of creation of the searched artworks
+     * @param cost maximum cost of the searched artworks
+     */
+    private Query(int year, double cost) {
+      this.year = year;
+      this.cost = cost;
+    }
+
+    /**
+     * Checks whether this key equals another object
+     *
+     * @param obj other object to compare
+     * @return true if obj is the key of a query with the same year and cost
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+      if (obj instanceof Query) {
+        Query other = (Query) obj;
+        return this.year == other.year && Double.compare(this.cost, other.cost) == 0;
+      }
+      return false;
+    }
+
+    /**
+     * Returns a hash code for this key, consistent with equals()
+     *
+     * @return the hash code of this key
+     */
+    @Override
+    public int hashCode() {
+      return 31 * Double.hashCode(cost) + year;
+    }
+  }
+
+  /**
+   * Epoch of a year, with the number of cached results referring to that year
+   */
+  private static class Epoch {
+
+    private long value; // number of updates of the year since it is referred to
+    private int references; // number of cached results of the year, including the best artwork
+  }
+
+  /**
+   * Cached result of a lookupAll() query, with the epoch of its year when it was computed
+   */
+  private static class CachedResult {
+
+    private final List<Artwork> artworks; // matches of the query, read-only
+    private final long epoch; // epoch of the year of the query when the matches were computed
+
+    /**
+     * Creates a cached result
+     *
+     * @param artworks matches of the query
+     * @param epoch    epoch of the year of the query when the matches were computed
+     */
+    private CachedResult(ArrayList<Artwork> artworks, long epoch) {
+      this.artworks = Collections.unmodifiableList(artworks);
+      this.epoch = epoch;
+    }
+  }
+
+  /**
+   * Creates a new empty CachedArtGallery which does not rebalance itself
+   *
+   * @param capacity maximum number of cached lookupAll() results
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public CachedArtGallery(int capacity) {
+    this(new ArtGallery(), capacity);
+  }
+
+  /**
+   * Creates a new CachedArtGallery caching the queries of a given gallery. The given gallery must
+   * not be modified directly afterwards.
+   *
+   * @param gallery  gallery whose queries are cached
+   * @param capacity maximum number of cached lookupAll() results
+   * @throws NullPointerException     if gallery is null
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public CachedArtGallery(ArtGallery gallery, int capacity) {
+
+    if (gallery == null) {
+      throw new NullPointerException("Gallery is null");
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity. The capacity must be positive");
+    }
+
+    this.gallery = gallery;
+    this.capacity = capacity;
+    this.epochs = new HashMap<Integer, Epoch>();
+    // access order: the eldest entry is the least recently used one
+    this.results = new LinkedHashMap<Query, CachedResult>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Query, CachedResult> eldest) {
+        if (size() > CachedArtGallery.this.capacity) {
+          evictions++;
+          release(eldest.getKey().year);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Gets the current epoch of a year
+   *
+   * @param year year of creation
+   * @return the number of updates of the artworks of that year so far
+   */
+  private long epoch(int year) {
+    Epoch epoch = epochs.get(year);
+    return epoch == null ? 0 : epoch.value;
+  }
+
+  /**
+   * Records that a new cached result refers to a year, so that the epoch of that year is kept
+   *
+   * @param year year of creation of the artworks of the result
+   * @return the current epoch of year
+   */
+  private long reference(int year) {
+    Epoch epoch = epochs.computeIfAbsent(year, key -> new Epoch());
+    epoch.references++;
+    return epoch.value;
+  }
+
+  /**
+   * Records that a cached result referring to a year was dropped. The epoch of the year is
+   * dropped with its last result: no result computed in an earlier epoch is left to invalidate.
+   *
+   * @param year year of creation of the artworks of the dropped result
+   */
+  private void release(int year) {
+    Epoch epoch = epochs.get(year);
+    if (--epoch.references == 0) {
+      epochs.remove(year);
+    }
+  }
+
+  /**
+   * Drops the cached result of getBestArtwork(), if any
+   */
+  private void dropBest() {
+    if (bestCached && best != null) {
+      release(best.getYear());
+    }
+    bestCached = false;
+    best = null;
+  }
+
+  /**
+   * Records an update of the artworks of a year, which invalidates the cached results of that
+   * year
+   *
+   * @param year year of creation of the added or bought artwork
+   */
+  private void update(int year) {
+
+    Epoch epoch = epochs.get(year);
+    if (epoch != null) { // years without cached results have nothing to invalidate
+      epoch.value++;
+    }
+
+    // an artwork of a later year becomes the best one
+    if (bestCached && (best == null || year > best.getYear())) {
+      dropBest();
+    }
+  }
+
+  /**
+   * Gets the number of years whose epoch is currently kept
+   *
+   * @return the number of years referred to by the cached results
+   */
+  protected int trackedYears() {
+    return epochs.size();
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return gallery.isEmpty();
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    return gallery.size();
+  }
+
+  /**
+   * Returns the height of the tree storing this gallery
+   *
+   * @return the height of this gallery
+   */
+  public int height() {
+    return gallery.height();
+  }
+
+  /**
+   * Gets the maximum number of cached lookupAll() results
+   *
+   * @return the capacity of the cache
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this gallery, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+    return gallery.lookup(name, year, cost);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name and year
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+    return gallery.lookup(name, year);
+  }
+
+  /**
+   * Adds a new artwork piece to this gallery, invalidating the cached results of its year
+   *
+   * @param newArtwork a new Artwork to add to this gallery
+   * @return true if the newArtwork was successfully added to this gallery, and returns false if
+   *         there is a match with this Artwork already stored in gallery.
+   * @throws NullPointerException if newArtwork is null
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    if (!gallery.addArtwork(newArtwork)) {
+      return false; // nothing changed, the cache stays valid
+    }
+    update(newArtwork.getYear());
+    return true;
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost, invalidating the cached results of its
+   * year
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public void buyArtwork(String name, int year, double cost) {
+
+    gallery.buyArtwork(name, year, cost);
+    update(year);
+  }
+
+  /**
+   * Buy the artwork of a given name and year, invalidating the cached results of its year
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @return the bought artwork
+   * @throws NullPointerException if name is null
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public Artwork buyArtwork(String name, int year) {
+
+    Artwork bought = gallery.buyArtwork(name, year);
+    update(year);
+    return bought;
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value. The
+   * result is read from the cache if the same query was answered since the last update of its
+   * year, and cached otherwise, evicting the least recently used result if the cache is full. The
+   * cached list itself is returned, without copying it, so callers must copy it before modifying
+   * it.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return an unmodifiable list of all the artwork objects whose year equals our lookup year key
+   *         and maximum cost. If no artwork satisfies the lookup query, this method returns an
+   *         empty list
+   */
+  public List<Artwork> lookupAll(int year, double cost) {
+
+    Query query = new Query(year, cost);
+
+    CachedResult cached = results.get(query);
+    if (cached != null && cached.epoch == epoch(year)) {
+      hits++;
+    } else {
+      misses++;
+      // an outdated result is replaced by the new one, which keeps its reference to year
+      long epoch = cached != null ? epoch(year) : reference(year);
+      cached = new CachedResult(gallery.lookupAll(year, cost), epoch);
+      results.put(query, cached);
+    }
+
+    return cached.artworks;
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery).
+   * The result is cached until an artwork of its year, or of a later year, is added or bought.
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+
+    if (bestCached && (best == null || epoch(best.getYear()) == bestEpoch)) {
+      hits++;
+      return best;
+    }
+
+    misses++;
+    dropBest();
+    best = gallery.getBestArtwork();
+    bestEpoch = best == null ? 0 : reference(best.getYear());
+    bestCached = true;
+    return best;
+  }
+
+  /**
+   * Gets the number of queries answered from the cache
+   *
+   * @return the number of cache hits
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of queries answered by the gallery, because their result was not cached or
+   * was outdated
+   *
+   * @return the number of cache misses
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of cached results evicted because the cache was full
+   *
+   * @return the number of evictions
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the proportion of the queries answered from the cache
+   *
+   * @return the number of hits divided by the number of queries, or 0 if there was no query
+   */
+  public double hitRatio() {
+    long queries = hits + misses;
+    return queries == 0 ? 0 : (double) hits / queries;
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+    return gallery.toString();
+  }
+
+}
@@ -0,0 +1,537 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ConcurrentArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.DoubleSummaryStatistics;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * This class models an Artwork Gallery which can be shared between threads. It wraps an ArtGallery
+ * and guards it with a StampedLock: addArtwork() and buyArtwork() hold the write lock, so they are
+ * linearizable together with the size of the gallery. The reads which do not walk the tree, that
+ * is size(), isEmpty(), height() and the lookups resolved in the hash index, first run as
+ * optimistic reads which take no lock at all. An optimistic read whose result may have been
+ * disturbed by a concurrent writer is validated against the lock stamp and retried under the read
+ * lock, so these reads never block each other and only wait for a writer when they actually raced
+ * with one. Every other query walks the nodes of the tree and holds the read lock: a walk running
+ * against a rotation in progress can find a node linked back to its own parent, follow that cycle
+ * forever and never get to validate its stamp.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class ConcurrentArtGallery {
+
+  private final ArtGallery gallery; // guarded gallery, only accessed under the lock
+  private final StampedLock lock; // guards gallery
+
+  /**
+   * Creates a new empty ConcurrentArtGallery which does not rebalance itself
+   */
+  public ConcurrentArtGallery() {
+    this(new ArtGallery());
+  }
+
+  /**
+   * Creates a new empty ConcurrentArtGallery
+   *
+   * @param balanced true to keep this gallery balanced (AVL) through addArtwork() and
+   *                 buyArtwork() operations, false to keep the plain BST behavior
+   */
+  public ConcurrentArtGallery(boolean balanced) {
+    this(new ArtGallery(balanced));
+  }
+
+  /**
+   * Creates a new ConcurrentArtGallery sharing the artworks of a given gallery, for instance one
+   * created by ArtGallery.bulkLoad(). The given gallery must not be used directly afterwards.
+   *
+   * @param gallery gallery to share between threads
+   * @throws NullPointerException if gallery is null
+   */
+  public ConcurrentArtGallery(ArtGallery gallery) {
+    if (gallery == null) {
+      throw new NullPointerException("Gallery is null");
+    }
+    this.gallery = gallery;
+    this.lock = new StampedLock();
+  }
+
+  /**
+   * Runs a read-only query on the gallery which reads a bounded number of fields without walking
+   * the tree, so that it always terminates even when it races with a writer. The operation is
+   * first run without any lock, then its result is kept only if no writer acquired the lock in
+   * the meantime. Otherwise, including when the operation failed because it observed the gallery
+   * in the middle of an update, it is run again under the read lock.
+   *
+   * @param <T>       type of the result of the operation
+   * @param operation read-only operation to run on the gallery
+   * @return the result of the operation
+   */
+  private <T> T read(Supplier<T> operation) {
+
+    long stamp = lock.tryOptimisticRead();
+
+    if (stamp != 0) { // no writer holds the lock
+      try {
+        T result = operation.get();
+        if (lock.validate(stamp)) {
+          return result; // no writer interfered
+        }
+      } catch (RuntimeException e) {
+        // the gallery changed under our feet, or the operation failed: try again under the lock
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return operation.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Runs a read-only walk of the tree of the gallery under the read lock, so that it only waits
+   * for the writers and never observes the tree in the middle of an update
+   *
+   * @param <T>       type of the result of the traversal
+   * @param operation read-only traversal of the gallery
+   * @return the result of the traversal
+   */
+  private <T> T locked(Supplier<T> operation) {
+
+    long stamp = lock.readLock();
+    try {
+      return operation.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Checks whether this gallery keeps itself balanced
+   *
+   * @return true if this gallery is kept balanced, false otherwise
+   */
+  public boolean isBalanced() {
+    return gallery.isBalanced();
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return read(() -> gallery.isEmpty());
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    return read(() -> gallery.size());
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this gallery, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name and year. Unlike the other
+   * reads, the optimistic read is written out instead of going through a capturing lambda, so
+   * this method does not create any object.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    long stamp = lock.tryOptimisticRead();
+
+    if (stamp != 0) { // no writer holds the lock
+      try {
+        boolean found = gallery.lookup(name, year);
+        if (lock.validate(stamp)) {
+          return found; // no writer interfered
+        }
+      } catch (RuntimeException e) {
+        // the index changed under our feet: try again under the lock
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return gallery.lookup(name, year);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Adds a new artwork piece to this gallery
+   *
+   * @param newArtwork a new Artwork to add to this gallery
+   * @return true if the newArtwork was successfully added to this gallery, and returns false if
+   *         there is a match with this Artwork already stored in gallery.
+   * @throws NullPointerException if newArtwork is null
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    long stamp = lock.writeLock();
+    try {
+      return gallery.addArtwork(newArtwork);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public void buyArtwork(String name, int year, double cost) {
+
+    long stamp = lock.writeLock();
+    try {
+      gallery.buyArtwork(name, year, cost);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Buy the artwork of a given name and year, without creating any object.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @return the bought artwork
+   * @throws NullPointerException if name is null
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public Artwork buyArtwork(String name, int year) {
+
+    long stamp = lock.writeLock();
+    try {
+      return gallery.buyArtwork(name, year);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Buy a batch of artworks, matched by name and year
+   *
+   * @param artworks artworks to buy
+   * @return a list of the artworks of the batch which had no match in this gallery
+   * @throws NullPointerException if artworks or any of its elements is null
+   */
+  public ArrayList<Artwork> buyAll(Collection<Artwork> artworks) {
+
+    long stamp = lock.writeLock();
+    try {
+      return gallery.buyAll(artworks);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes all the artworks created between two years from this gallery
+   *
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return a list of the removed artworks
+   */
+  public ArrayList<Artwork> removeRange(int fromYear, int toYear) {
+
+    long stamp = lock.writeLock();
+    try {
+      return gallery.removeRange(fromYear, toYear);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery)
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+    return locked(() -> gallery.getBestArtwork());
+  }
+
+  /**
+   * Returns the height of the tree storing this gallery
+   *
+   * @return the height of this gallery
+   */
+  public int height() {
+    return read(() -> gallery.height());
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost. If no artwork satisfies the lookup query, this method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+    return locked(() -> gallery.lookupAll(year, cost));
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value, and adds
+   * them to a given collection. The collection is only modified once a consistent result is known.
+   *
+   * @param <C>    type of the collection receiving the matches
+   * @param year   creation year of artwork
+   * @param cost   the maximum cost we would like to search for a artwork
+   * @param result collection to which every matching artwork is added
+   * @return result, after all the matching artworks have been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupAll(int year, double cost, C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    result.addAll(lookupAll(year, cost));
+    return result;
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value. The
+   * matches are collected when this method is called, so the returned stream is not affected by
+   * later updates of this gallery.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a sequential stream of all the matching artworks
+   */
+  public Stream<Artwork> lookupAllStream(int year, double cost) {
+    return lookupAll(year, cost).stream();
+  }
+
+  /**
+   * Search for all artwork objects whose cost is in a given range, whatever their year of
+   * creation
+   *
+   * @param minCost the minimum cost we would like to search for a artwork
+   * @param maxCost the maximum cost we would like to search for a artwork
+   * @return a list of all the matching artworks, in increasing order of cost
+   */
+  public ArrayList<Artwork> lookupByCost(double minCost, double maxCost) {
+    return locked(() -> gallery.lookupByCost(minCost, maxCost));
+  }
+
+  /**
+   * Gets the cheapest artworks of this gallery, whatever their year of creation
+   *
+   * @param count maximum number of artworks to return
+   * @return a list of the count cheapest artworks of this gallery in increasing order of cost
+   * @throws IllegalArgumentException if count is negative
+   */
+  public ArrayList<Artwork> cheapest(int count) {
+    return locked(() -> gallery.cheapest(count));
+  }
+
+  /**
+   * Search for at most a given number of artwork objects having a word of their name which starts
+   * with a given query, ignoring case
+   *
+   * @param query beginning of the searched words, which may span several words
+   * @param limit maximum number of artworks to return
+   * @return a list of the first limit matching artworks
+   * @throws NullPointerException     if query is null
+   * @throws IllegalArgumentException if limit is negative
+   */
+  public ArrayList<Artwork> searchByName(String query, int limit) {
+    return locked(() -> gallery.searchByName(query, limit));
+  }
+
+  /**
+   * Computes the total value of this gallery, that is the sum of the costs of its artworks
+   *
+   * @return the total cost of the artworks of this gallery, or 0 if it is empty
+   */
+  public double totalValue() {
+    return locked(() -> gallery.totalValue());
+  }
+
+  /**
+   * Computes the statistics of the costs of the artworks created each year
+   *
+   * @return a map from every year of creation to the statistics of the costs of that year
+   */
+  public TreeMap<Integer, DoubleSummaryStatistics> statsByYear() {
+    return locked(() -> gallery.statsByYear());
+  }
+
+  /**
+   * Computes a histogram of the costs of the artworks for every group of consecutive years
+   *
+   * @param yearsPerGroup number of years of each group, 10 for decades
+   * @param bucketWidth   width of each cost bucket
+   * @return a map from the first year of every group to the histogram of its costs
+   * @throws IllegalArgumentException if yearsPerGroup or bucketWidth is not positive
+   */
+  public TreeMap<Integer, TreeMap<Double, Long>> histogram(int yearsPerGroup, double bucketWidth) {
+    return locked(() -> gallery.histogram(yearsPerGroup, bucketWidth));
+  }
+
+  /**
+   * Computes the total value of the artworks created between two years
+   *
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the total cost of the artworks of the range, or 0 if there is none
+   */
+  public double totalValue(int fromYear, int toYear) {
+    return locked(() -> gallery.totalValue(fromYear, toYear));
+  }
+
+  /**
+   * Gets the most expensive artwork created between two years
+   *
+   * @param fromYear first year of the range, included
+   * @param toYear   last year of the range, included
+   * @return the artwork of highest cost of the range, or null if there is none
+   */
+  public Artwork getMostExpensiveArtwork(int fromYear, int toYear) {
+    return locked(() -> gallery.getMostExpensiveArtwork(fromYear, toYear));
+  }
+
+  /**
+   * Computes the rank of a given artwork in this gallery
+   *
+   * @param artwork artwork whose rank is computed
+   * @return the number of artworks of this gallery smaller than artwork
+   * @throws NullPointerException if artwork is null
+   */
+  public int rank(Artwork artwork) {
+    return locked(() -> gallery.rank(artwork));
+  }
+
+  /**
+   * Selects the artwork of a given rank in this gallery
+   *
+   * @param index rank of the artwork to select
+   * @return the artwork of rank index in this gallery
+   * @throws IndexOutOfBoundsException if index is negative or not smaller than size()
+   */
+  public Artwork select(int index) {
+    return locked(() -> gallery.select(index));
+  }
+
+  /**
+   * Gets the artwork of a given percentile of cost among the artworks created on a given year
+   *
+   * @param year       creation year of artwork
+   * @param percentile percentile to compute, between 0 and 100
+   * @return the artwork of year whose cost is at the given percentile, or null if there is none
+   * @throws IllegalArgumentException if percentile is not between 0 and 100
+   */
+  public Artwork percentile(int year, double percentile) {
+    return locked(() -> gallery.percentile(year, percentile));
+  }
+
+  /**
+   * Writes all the artwork stored within this gallery to a given destination. The read lock is
+   * held for the whole operation, since what was already written cannot be taken back.
+   *
+   * @param out destination of the String representation of this gallery
+   * @throws IOException if out fails to append a character sequence
+   */
+  public void writeTo(Appendable out) throws IOException {
+
+    long stamp = lock.readLock();
+    try {
+      gallery.writeTo(out);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Writes all the artwork stored within this gallery to a given writer
+   *
+   * @param out writer to write the String representation of this gallery to
+   * @throws IOException if out fails to write
+   */
+  public void writeTo(Writer out) throws IOException {
+
+    long stamp = lock.readLock();
+    try {
+      gallery.writeTo(out);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Saves this gallery to a binary snapshot file, which ArtGallery.load() maps back into a gallery
+   *
+   * @param file path of the snapshot file, replaced if it already exists
+   * @throws IOException if the file cannot be written
+   */
+  public void save(Path file) throws IOException {
+
+    long stamp = lock.readLock();
+    try {
+      gallery.save(file);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+    return locked(() -> gallery.toString());
+  }
+
+}
@@ -0,0 +1,119 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CostIndex.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * This class models a secondary index of artworks ordered by cost, whatever their year of
+ * creation. The artworks are grouped by cost in a sorted map, and the artworks of the same cost are
+ * kept sorted with respect to the result of Artwork.compareTo() method (year, then name). A range
+ * of costs is found in O(log n) time, then its k artworks are listed in O(k) time.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class CostIndex {
+
+  private final TreeMap<Double, TreeSet<Artwork>> costs; // artworks grouped by cost
+  private int size; // number of artworks stored in this index
+
+  /**
+   * Creates a new empty CostIndex
+   */
+  public CostIndex() {
+    this.costs = new TreeMap<Double, TreeSet<Artwork>>();
+  }
+
+  /**
+   * Adds an artwork to this index
+   *
+   * @param artwork artwork to add
+   * @return true if artwork was added, false if it is already stored in this index
+   */
+  public boolean add(Artwork artwork) {
+
+    TreeSet<Artwork> sameCost = costs.get(artwork.getCost());
+    if (sameCost == null) {
+      sameCost = new TreeSet<Artwork>();
+      costs.put(artwork.getCost(), sameCost);
+    }
+
+    if (!sameCost.add(artwork)) {
+      return false; // already stored
+    }
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes an artwork from this index
+   *
+   * @param artwork artwork to remove, with the exact cost it was added with
+   * @return true if artwork was removed, false if it is not stored in this index
+   */
+  public boolean remove(Artwork artwork) {
+
+    TreeSet<Artwork> sameCost = costs.get(artwork.getCost());
+    if (sameCost == null || !sameCost.remove(artwork)) {
+      return false; // not stored
+    }
+
+    if (sameCost.isEmpty()) {
+      costs.remove(artwork.getCost());
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Returns the number of artworks stored in this index
+   *
+   * @return the size of this index
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds to a given collection all the artworks of this index whose cost is in a given range, in
+   * increasing order of cost
+   *
+   * @param minCost the minimum cost, included
+   * @param maxCost the maximum cost, included
+   * @param result  collection to which every artwork of the range is added
+   */
+  public void range(double minCost, double maxCost, Collection<? super Artwork> result) {
+
+    if (minCost > maxCost) {
+      return; // empty range
+    }
+
+    for (TreeSet<Artwork> sameCost : costs.subMap(minCost, true, maxCost, true).values()) {
+      result.addAll(sameCost);
+    }
+  }
+
+  /**
+   * Adds to a given collection the count cheapest artworks of this index, in increasing order of
+   * cost. Fewer artworks are added if this index stores less than count artworks.
+   *
+   * @param count  maximum number of artworks to add
+   * @param result collection to which the cheapest artworks are added
+   */
+  public void cheapest(int count, Collection<? super Artwork> result) {
+
+    for (TreeSet<Artwork> sameCost : costs.values()) {
+      for (Artwork artwork : sameCost) {
+        if (count-- <= 0) {
+          return; // enough artworks
+        }
+        result.add(artwork);
+      }
+    }
+  }
+
+}
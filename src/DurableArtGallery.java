@@ -0,0 +1,732 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: DurableArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * This class models an Artwork Gallery which survives crashes. It wraps an ArtGallery stored in a
+ * directory as a snapshot (written by ArtGallery.save()) followed by a write-ahead log of the
+ * additions and purchases made since the snapshot. The files of a directory are numbered by
+ * generation: snapshot-g holds the state before the records of log-g, log-(g+1) and so on.
+ *
+ * Every successful addArtwork() or buyArtwork() is applied in memory and appended to a pending
+ * batch under the write lock, then waits until its record is forced to disk. The first waiting
+ * caller becomes the leader: it writes the whole pending batch with a single fsync while the
+ * following callers keep filling the next batch, so concurrent callers share the cost of an fsync
+ * (group commit). When the log grows beyond a threshold, a background thread writes a new
+ * snapshot of the gallery and deletes the log it replaces, so replay time stays bounded.
+ *
+ * If writing the log fails, the durability of the latest updates is unknown: the gallery stops
+ * accepting updates, which then throw an UncheckedIOException, and must be opened again.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class DurableArtGallery implements Closeable {
+
+  private static final byte ADD = 1; // operation code of an addArtwork() record
+  private static final byte BUY = 2; // operation code of a buyArtwork() record
+  private static final String SNAPSHOT = "snapshot-"; // prefix of the snapshot files
+  private static final String LOG = "log-"; // prefix of the log files
+  private static final String TEMPORARY = ".tmp"; // suffix of the snapshots being written
+  private static final Pattern GENERATION = Pattern.compile("\\d{1,18}"); // generation in a name
+  private static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20; // log size to compact at
+
+  private final Path directory; // directory storing the snapshot and log files
+  private final ArtGallery gallery; // state of the gallery, guarded by lock
+  private final long compactionThreshold; // size of the log from which it is compacted
+  private final ReentrantReadWriteLock lock; // guards gallery, pending and appended
+  private final ByteArrayOutputStream pending; // records appended but not written yet
+  private final ExecutorService compactor; // background thread writing the snapshots
+  private final Object compaction = new Object(); // held by the running compaction
+  private long appended; // sequence number of the last appended record
+
+  // the following fields are guarded by the monitor of this object
+  private long durable; // sequence number of the last record forced to disk
+  private boolean writing; // true while a leader writes to the log or rotates it
+  private boolean compacting; // true while a compaction is scheduled or running
+  private IOException failure; // first failure to write the log, null if none
+
+  // the following fields are only used by the leader, while writing is true
+  private FileChannel log; // log file receiving the records
+  private long generation; // generation of the log file
+  private long logSize; // number of bytes of the log file
+
+  /**
+   * Creates a DurableArtGallery from a recovered gallery and an open log
+   *
+   * @param directory           directory storing the snapshot and log files
+   * @param gallery             recovered gallery
+   * @param log                 open log file, positioned at its end
+   * @param generation          generation of the log file
+   * @param compactionThreshold size of the log from which it is compacted
+   * @throws IOException if the size of the log cannot be read
+   */
+  private DurableArtGallery(Path directory, ArtGallery gallery, FileChannel log, long generation,
+      long compactionThreshold) throws IOException {
+    this.directory = directory;
+    this.gallery = gallery;
+    this.log = log;
+    this.generation = generation;
+    this.logSize = log.size();
+    this.compactionThreshold = compactionThreshold;
+    this.lock = new ReentrantReadWriteLock();
+    this.pending = new ByteArrayOutputStream();
+    this.compactor = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "gallery-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Opens the gallery stored in a directory, compacting its log once it reaches 64 MiB
+   *
+   * @param directory directory storing the gallery, created if it does not exist
+   * @param balanced  true to keep a new gallery balanced (AVL) through its updates. A recovered
+   *                  gallery keeps the mode it was created with
+   * @return the gallery stored in directory, or a new empty gallery if there is none
+   * @throws IOException if the directory cannot be read, or its snapshot is not valid
+   */
+  public static DurableArtGallery open(Path directory, boolean balanced) throws IOException {
+    return open(directory, balanced, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Opens the gallery stored in a directory. The latest snapshot is loaded, then the logs of this
+   * generation and of the following ones are replayed on top of it in order. A record torn by a
+   * crash in the middle of its write is detected by its checksum, and the log is truncated before
+   * it: since it was never forced to disk, its update was never acknowledged.
+   *
+   * @param directory           directory storing the gallery, created if it does not exist
+   * @param balanced            true to keep a new gallery balanced (AVL) through its updates. A
+   *                            recovered gallery keeps the mode it was created with
+   * @param compactionThreshold size in bytes of the log from which it is compacted
+   * @return the gallery stored in directory, or a new empty gallery if there is none
+   * @throws IOException              if the directory cannot be read, or its snapshot is not valid
+   * @throws NullPointerException     if directory is null
+   * @throws IllegalArgumentException if compactionThreshold is not positive
+   */
+  public static DurableArtGallery open(Path directory, boolean balanced, long compactionThreshold)
+      throws IOException {
+
+    if (directory == null) {
+      throw new NullPointerException("Directory is null");
+    }
+    if (compactionThreshold <= 0) {
+      throw new IllegalArgumentException("Invalid compaction threshold. It must be positive");
+    }
+
+    Files.createDirectories(directory);
+
+    // list the generations of the snapshots and of the logs, dropping unfinished snapshots. The
+    // files whose names do not follow these patterns are not ours, so they are left alone
+    TreeSet<Long> snapshots = new TreeSet<Long>();
+    TreeSet<Long> logs = new TreeSet<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        long snapshot = generation(name, SNAPSHOT, "");
+        long log = generation(name, LOG, "");
+        if (generation(name, SNAPSHOT, TEMPORARY) >= 0) {
+          Files.delete(file);
+        } else if (snapshot >= 0) {
+          snapshots.add(snapshot);
+        } else if (log >= 0) {
+          logs.add(log);
+        }
+      }
+    }
+
+    long generation = snapshots.isEmpty() ? 0 : snapshots.last();
+    ArtGallery gallery = snapshots.isEmpty() ? new ArtGallery(balanced)
+        : ArtGallery.load(directory.resolve(SNAPSHOT + generation));
+
+    for (long logGeneration : logs.tailSet(generation, true)) {
+      replay(gallery, directory.resolve(LOG + logGeneration));
+      generation = logGeneration;
+    }
+
+    // files older than the snapshot are covered by it
+    for (long older : snapshots.headSet(snapshots.isEmpty() ? 0 : snapshots.last(), false)) {
+      Files.delete(directory.resolve(SNAPSHOT + older));
+    }
+    for (long older : logs.headSet(snapshots.isEmpty() ? 0 : snapshots.last(), false)) {
+      Files.delete(directory.resolve(LOG + older));
+    }
+
+    FileChannel log = FileChannel.open(directory.resolve(LOG + generation),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    try {
+      syncDirectory(directory); // the entry of a new log must survive a crash too
+    } catch (IOException e) {
+      log.close();
+      throw e;
+    }
+    return new DurableArtGallery(directory, gallery, log, generation, compactionThreshold);
+  }
+
+  /**
+   * Gets the generation of a file of the gallery from its name, made of a prefix, a decimal
+   * generation number and a suffix
+   *
+   * @param name   name of the file
+   * @param prefix expected prefix of the name, SNAPSHOT or LOG
+   * @param suffix expected suffix of the name, TEMPORARY or an empty String
+   * @return the generation of the file, or -1 if name does not follow this pattern
+   */
+  private static long generation(String name, String prefix, String suffix) {
+
+    if (name.length() < prefix.length() + suffix.length() || !name.startsWith(prefix)
+        || !name.endsWith(suffix)) {
+      return -1;
+    }
+
+    String digits = name.substring(prefix.length(), name.length() - suffix.length());
+    if (!GENERATION.matcher(digits).matches()) {
+      return -1;
+    }
+    return Long.parseLong(digits);
+  }
+
+  /**
+   * Forces the entries of a directory to disk, so that the files created or renamed in it survive
+   * a crash: forcing a file only makes its content durable, not its name. Some platforms cannot
+   * open a directory as a channel; there, the entries are left to the file system.
+   *
+   * @param directory directory whose entries are forced
+   * @throws IOException if the entries cannot be forced
+   */
+  private static void syncDirectory(Path directory) throws IOException {
+
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory, StandardOpenOption.READ);
+    } catch (IOException e) {
+      return; // directories cannot be opened on this platform
+    }
+
+    try (channel) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Applies the records of a log file to a gallery, then truncates the log after the last
+   * complete record. Each record is made of its length, its content (operation code, name, year
+   * and cost) and the CRC32 checksum of its content.
+   *
+   * @param gallery gallery to update
+   * @param file    log file to replay
+   * @throws IOException if the log file cannot be read or truncated
+   */
+  private static void replay(ArtGallery gallery, Path file) throws IOException {
+
+    long valid = 0; // length of the complete records
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+      while (true) {
+
+        byte[] record;
+        int checksum;
+        try {
+          int length = in.readInt();
+          if (length <= 0 || length > (1 << 20)) {
+            break; // torn length
+          }
+          record = new byte[length];
+          in.readFully(record);
+          checksum = in.readInt();
+        } catch (EOFException e) {
+          break; // end of the log, or torn record
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        if ((int) crc.getValue() != checksum) {
+          break; // torn record
+        }
+
+        DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+        byte operation = fields.readByte();
+        String name = fields.readUTF();
+        int year = fields.readInt();
+        double cost = fields.readDouble();
+
+        if (operation == ADD) {
+          gallery.addArtwork(new Artwork(name, year, cost));
+        } else if (operation == BUY) {
+          gallery.buyArtwork(name, year, cost);
+        } else {
+          throw new IOException("Corrupted gallery log");
+        }
+
+        valid += 4 + record.length + 4;
+      }
+    } catch (NoSuchElementException | IllegalArgumentException e) {
+      throw new IOException("Corrupted gallery log", e);
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      if (channel.size() > valid) {
+        channel.truncate(valid);
+        channel.force(true);
+      }
+    }
+  }
+
+  /**
+   * Adds a new artwork piece to this gallery. This method returns once the addition is on disk.
+   *
+   * @param newArtwork a new Artwork to add to this gallery
+   * @return true if the newArtwork was successfully added to this gallery, and returns false if
+   *         there is a match with this Artwork already stored in gallery.
+   * @throws NullPointerException if newArtwork is null
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    if (newArtwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+
+    byte[] record = encode(ADD, newArtwork.getName(), newArtwork.getYear(), newArtwork.getCost());
+    long sequence;
+    lock.writeLock().lock();
+    try {
+      checkFailure();
+      if (!gallery.addArtwork(newArtwork)) {
+        return false; // nothing to log
+      }
+      sequence = append(record);
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    awaitDurable(sequence);
+    return true;
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost. This method returns once the purchase
+   * is on disk.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  public void buyArtwork(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    byte[] record = encode(BUY, name, year, cost);
+    long sequence;
+    lock.writeLock().lock();
+    try {
+      checkFailure();
+      gallery.buyArtwork(name, year, cost);
+      sequence = append(record);
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    awaitDurable(sequence);
+  }
+
+  /**
+   * Encodes a log record: its length, its content (operation code, name, year and cost) and the
+   * CRC32 checksum of its content. Records are encoded before the update they log, so that an
+   * update is never applied without its record.
+   *
+   * @param operation operation code of the record
+   * @param name      name of the artwork
+   * @param year      year of creation of the artwork
+   * @param cost      cost of the artwork
+   * @return the bytes of the record
+   * @throws UncheckedIOException if name is too long to be encoded
+   */
+  private static byte[] encode(byte operation, String name, int year, double cost) {
+
+    try {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      DataOutputStream fields = new DataOutputStream(content);
+      fields.writeByte(operation);
+      fields.writeUTF(name);
+      fields.writeInt(year);
+      fields.writeDouble(cost);
+
+      CRC32 crc = new CRC32();
+      crc.update(content.toByteArray());
+
+      ByteArrayOutputStream record = new ByteArrayOutputStream(content.size() + 8);
+      DataOutputStream out = new DataOutputStream(record);
+      out.writeInt(content.size());
+      content.writeTo(out);
+      out.writeInt((int) crc.getValue());
+      return record.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // name longer than 65535 bytes in modified UTF-8
+    }
+  }
+
+  /**
+   * Appends a record to the pending batch. It must be called under the write lock, right after
+   * the update it records, so that the records are in the same order as the updates.
+   *
+   * @param record bytes of the record
+   * @return the sequence number of the record
+   */
+  private long append(byte[] record) {
+    pending.write(record, 0, record.length);
+    return ++appended;
+  }
+
+  /**
+   * Throws the failure of the log, if any
+   *
+   * @throws UncheckedIOException if the log could not be written
+   */
+  private synchronized void checkFailure() {
+    if (failure != null) {
+      throw new UncheckedIOException("Gallery log failed", failure);
+    }
+  }
+
+  /**
+   * Waits until a record is forced to disk. If no leader is writing the log, the calling thread
+   * becomes the leader and writes the whole pending batch, its own record included.
+   *
+   * @param sequence sequence number of the record
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  private void awaitDurable(long sequence) {
+
+    synchronized (this) {
+      boolean interrupted = false;
+      while (durable < sequence && writing && failure == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true; // the update is applied, so its durability is still awaited
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      checkFailure();
+      if (durable >= sequence) {
+        return; // written by another leader
+      }
+      writing = true;
+    }
+
+    writeBatch(false);
+  }
+
+  /**
+   * Writes the pending batch to the log and forces it to disk, as the leader. When rotate is
+   * true, the log is then closed and the log of the next generation is opened, and a copy of the
+   * gallery is taken at the same point, all without any update in between.
+   *
+   * @param rotate true to start a new log generation after the batch
+   * @return the artworks of the gallery when the log was rotated, in increasing order, or null if
+   *         rotate is false
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  private Artwork[] writeBatch(boolean rotate) {
+
+    byte[] batch;
+    long sequence;
+    Artwork[] state = null;
+
+    lock.writeLock().lock();
+    try {
+      batch = pending.toByteArray();
+      pending.reset();
+      sequence = appended;
+      if (rotate) {
+        state = gallery.stream().toArray(Artwork[]::new);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    IOException error = null;
+    boolean compact = false;
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(batch);
+      while (buffer.hasRemaining()) {
+        log.write(buffer);
+      }
+      log.force(false);
+
+      if (rotate) {
+        log.close();
+        log = FileChannel.open(directory.resolve(LOG + (generation + 1)),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(directory);
+        generation++;
+        logSize = 0;
+      } else {
+        logSize += batch.length;
+      }
+    } catch (IOException e) {
+      error = e;
+    }
+
+    synchronized (this) {
+      if (error != null) {
+        failure = error;
+      } else {
+        durable = sequence;
+        if (!rotate && logSize >= compactionThreshold && !compacting) {
+          compacting = compact = true;
+        }
+      }
+      writing = false;
+      notifyAll();
+    }
+
+    if (compact) {
+      compactor.execute(this::compactQuietly);
+    }
+    checkFailure();
+    return state;
+  }
+
+  /**
+   * Compacts the log: the log is rotated, then a snapshot of the gallery at the rotation point is
+   * written as the snapshot of the new generation, and the files it replaces are deleted. Updates
+   * are only blocked while the log is rotated and the artworks are copied, not while the snapshot
+   * is written. A compaction waits for the one running, if any, so that a snapshot is never
+   * published after a newer one.
+   *
+   * @throws IOException          if the snapshot cannot be written
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  public void compact() throws IOException {
+    synchronized (compaction) {
+      rotateAndSnapshot();
+    }
+  }
+
+  /**
+   * Rotates the log, then writes the snapshot of the new generation and deletes the files it
+   * replaces, as compact() does, while holding the compaction monitor
+   *
+   * @throws IOException          if the snapshot cannot be written
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  private void rotateAndSnapshot() throws IOException {
+
+    synchronized (this) {
+      while (writing && failure == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return; // compaction is only an optimization
+        }
+      }
+      checkFailure();
+      writing = true;
+    }
+
+    Artwork[] state = writeBatch(true);
+    long snapshotGeneration;
+    synchronized (this) {
+      snapshotGeneration = generation;
+    }
+
+    // write the snapshot straight from the sorted artworks under a temporary name, then publish
+    // it atomically
+    Path temporary = directory.resolve(SNAPSHOT + snapshotGeneration + TEMPORARY);
+    ArtGallery.saveSorted(state, gallery.isBalanced(), temporary);
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temporary, directory.resolve(SNAPSHOT + snapshotGeneration),
+        StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(directory); // the logs it covers are only deleted once the rename is durable
+
+    // delete the files covered by the new snapshot
+    ArrayList<Path> covered = new ArrayList<Path>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        long snapshot = generation(name, SNAPSHOT, "");
+        long log = generation(name, LOG, "");
+        if (snapshot >= 0 && snapshot < snapshotGeneration
+            || log >= 0 && log < snapshotGeneration) {
+          covered.add(file);
+        }
+      }
+    }
+    for (Path file : covered) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Runs a background compaction. A failure leaves the previous snapshot and logs in place, so it
+   * only delays the next compaction.
+   */
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException | UncheckedIOException e) {
+      // the log keeps growing until the next compaction succeeds
+    } finally {
+      synchronized (this) {
+        compacting = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return gallery.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this gallery, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+    lock.readLock().lock();
+    try {
+      return gallery.lookup(name, year, cost);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost. If no artwork satisfies the lookup query, this method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+    lock.readLock().lock();
+    try {
+      return gallery.lookupAll(year, cost);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery)
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+    lock.readLock().lock();
+    try {
+      return gallery.getBestArtwork();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+    lock.readLock().lock();
+    try {
+      return gallery.toString();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Waits for the background compaction, if any, then closes the log. Every update which returned
+   * is already on disk, so nothing is lost.
+   *
+   * @throws IOException if the log cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized (this) {
+      while (writing) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      log.close();
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: EncodedArtwork.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class models an artwork piece whose name is encoded in a NameDictionary. Artworks encoded
+ * in the same dictionary share the same name instance, and compare their names through their ids.
+ * The dictionary and the id are only stored by the encoded artworks, so plain artworks do not pay
+ * for them.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class EncodedArtwork extends Artwork {
+
+  private final NameDictionary dictionary; // dictionary encoding the name
+  private final int nameId; // id of the name in dictionary
+
+  /**
+   * Creates a new art piece with given attributes, whose name is encoded in a given dictionary
+   *
+   * @param name       name of the artwork piece, artist
+   * @param year       year of creation of this artwork piece
+   * @param cost       the cost of this artwork piece in dollars
+   * @param dictionary dictionary encoding the names of the artworks
+   * @throws an IllegalArgumentException if year is less than 1000, if cost is negative or zero or
+   *            if name is null or an empty string
+   * @throws NullPointerException if dictionary is null
+   */
+  public EncodedArtwork(String name, int year, double cost, NameDictionary dictionary) {
+    this(encode(name, year, cost, dictionary), year, cost, dictionary);
+  }
+
+  /**
+   * Creates a new art piece whose name is already encoded in a given dictionary
+   *
+   * @param nameId     id of the name of this artwork piece in dictionary
+   * @param year       year of creation of this artwork piece
+   * @param cost       the cost of this artwork piece in dollars
+   * @param dictionary dictionary encoding the names of the artworks
+   */
+  private EncodedArtwork(int nameId, int year, double cost, NameDictionary dictionary) {
+    // share the name instance of the dictionary
+    super(dictionary.decode(nameId), year, cost);
+    this.dictionary = dictionary;
+    this.nameId = nameId;
+  }
+
+  /**
+   * Checks the validity of the attributes of an artwork, then encodes its name in a dictionary
+   *
+   * @param name       name of the artwork piece, artist
+   * @param year       year of creation of the artwork piece
+   * @param cost       the cost of the artwork piece in dollars
+   * @param dictionary dictionary encoding the names of the artworks
+   * @return the id of name in dictionary
+   * @throws an IllegalArgumentException if year is less than 1000, if cost is negative or zero or
+   *            if name is null or an empty string
+   * @throws NullPointerException if dictionary is null
+   */
+  private static int encode(String name, int year, double cost, NameDictionary dictionary) {
+    validate(name, year, cost);
+    if (dictionary == null)
+      throw new NullPointerException("Dictionary is null");
+    return dictionary.encode(name);
+  }
+
+  /**
+   * Gets the dictionary encoding the name of this artwork
+   *
+   * @return the dictionary encoding the name of this artwork
+   */
+  public NameDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Gets the id of the name of this artwork in its dictionary
+   *
+   * @return the id of the name of this artwork
+   */
+  public int getNameId() {
+    return nameId;
+  }
+
+  /**
+   * Compares the name of this artwork with the name of another artwork in lexical order. When both
+   * names are encoded in the same dictionary, their ids are compared instead of their characters.
+   *
+   * @param otherArtwork other artwork
+   * @return 0 if both names are equal, an integer less than 0 if the name of this artwork comes
+   *         first in lexical order, and an integer greater than 0 otherwise
+   */
+  @Override
+  protected int compareNames(Artwork otherArtwork) {
+
+    if (otherArtwork instanceof EncodedArtwork
+        && ((EncodedArtwork) otherArtwork).dictionary == this.dictionary) {
+      return this.dictionary.compare(this.nameId, ((EncodedArtwork) otherArtwork).nameId);
+    }
+    return super.compareNames(otherArtwork);
+
+  }
+
+  /**
+   * Checks whether this artwork has the same name as another artwork. When both names are encoded
+   * in the same dictionary, their ids are compared instead of their characters.
+   *
+   * @param otherArtwork other artwork
+   * @return true if both artworks have the same name, false otherwise
+   */
+  @Override
+  protected boolean hasSameName(Artwork otherArtwork) {
+
+    if (otherArtwork instanceof EncodedArtwork
+        && ((EncodedArtwork) otherArtwork).dictionary == this.dictionary) {
+      return this.nameId == ((EncodedArtwork) otherArtwork).nameId;
+    }
+    return super.hasSameName(otherArtwork);
+
+  }
+
+}
@@ -0,0 +1,286 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: FrozenArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * This class models a read-only Artwork Gallery optimized for searches, created with
+ * ArtGallery.freeze(). Instead of a tree of nodes, the keys of the artworks are stored in parallel
+ * arrays (years and costs) following the Eytzinger layout: the root is stored at index 1
+ * and the children of the node at index k are stored at indexes 2k and 2k + 1. A search therefore
+ * walks an implicit perfectly balanced tree by index arithmetic, reading one int, and only when the
+ * years are equal one double, per level. The top levels of every search share the first cache
+ * lines of the arrays, and the children of a node are next to each other, so the memory accesses
+ * are far more predictable than when chasing BSTNode, Artwork and String references.
+ *
+ * Like ArtGallery, a frozen gallery identifies its artworks by their name and year, whatever their
+ * cost, so lookup() resolves its key in an ArtworkIndex built once by the constructor instead of
+ * walking the arrays, which are ordered by cost within a year.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class FrozenArtGallery {
+
+  private final int size; // number of artworks in this gallery
+  private final int[] years; // years of creation, in Eytzinger order (index 0 is unused)
+  private final double[] costs; // costs, in Eytzinger order (index 0 is unused)
+  private final Artwork[] artworks; // artworks returned by the searches, in Eytzinger order
+  private final ArtworkIndex index; // hash index of the artworks by name and year
+
+  /**
+   * Creates a FrozenArtGallery storing given artworks
+   *
+   * @param sorted artworks sorted in strictly increasing order with respect to the result of
+   *               Artwork.compareTo() method (year, cost, name)
+   */
+  FrozenArtGallery(Artwork[] sorted) {
+
+    this.size = sorted.length;
+    this.years = new int[size + 1];
+    this.costs = new double[size + 1];
+    this.artworks = new Artwork[size + 1];
+    this.index = new ArtworkIndex();
+
+    // the in-order traversal of the implicit tree visits its indexes in increasing key order
+    int index = first();
+    for (Artwork artwork : sorted) {
+      years[index] = artwork.getYear();
+      costs[index] = artwork.getCost();
+      artworks[index] = artwork;
+      this.index.add(artwork);
+      index = next(index);
+    }
+  }
+
+  /**
+   * Gets the index of the smallest artwork, reached by going as far left as possible
+   *
+   * @return the index of the smallest artwork, or 0 if this gallery is empty
+   */
+  private int first() {
+
+    if (size == 0) {
+      return 0;
+    }
+
+    int index = 1;
+    while (2 * index <= size) {
+      index = 2 * index;
+    }
+    return index;
+  }
+
+  /**
+   * Gets the index of the artwork following a given one in increasing order
+   *
+   * @param index index of an artwork
+   * @return the index of the next artwork, or 0 if index is the one of the largest artwork
+   */
+  private int next(int index) {
+
+    if (2 * index + 1 <= size) {
+
+      // leftmost node of the right subtree
+      index = 2 * index + 1;
+      while (2 * index <= size) {
+        index = 2 * index;
+      }
+      return index;
+
+    }
+
+    // climb while coming from a right child, then once more
+    while ((index & 1) == 1) {
+      index >>>= 1;
+    }
+    return index >>> 1;
+  }
+
+  /**
+   * Searches the first artwork whose year and cost are not smaller than a given year and cost. The
+   * implicit tree is walked down to a leaf, each step choosing a child by index arithmetic, then
+   * the last step to the left is undone: it happened at the searched artwork.
+   *
+   * @param year year of the key
+   * @param cost cost of the key
+   * @return the index of the first artwork not smaller than the key, or 0 if there is none
+   */
+  private int lowerBound(int year, double cost) {
+
+    int index = 1;
+
+    while (index <= size) {
+      boolean smaller = years[index] < year || (years[index] == year && costs[index] < cost);
+      index = 2 * index + (smaller ? 1 : 0);
+    }
+
+    // drop the trailing right steps and the last left step
+    return index >>> (Integer.numberOfTrailingZeros(~index) + 1);
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the height of the implicit tree storing this gallery, counting the number of nodes
+   *
+   * @return the height of this gallery
+   */
+  public int height() {
+    return 32 - Integer.numberOfLeadingZeros(size);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost. The match is
+   * found even if cost differs from the cost of the stored artwork.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this gallery, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name and year, in O(1) expected time.
+   * The key is compared against the stored artworks directly, so this method neither creates any
+   * object nor checks the validity of the key: an invalid key has no match.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    return index.get(name, year) != null;
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery)
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+
+    if (size == 0) {
+      return null;
+    }
+
+    // rightmost node of the implicit tree
+    int index = 1;
+    while (2 * index + 1 <= size) {
+      index = 2 * index + 1;
+    }
+    return artworks[index];
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost, in increasing order of cost. If no artwork satisfies the lookup query, this method
+   *         returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+    return lookupAll(year, cost, new ArrayList<Artwork>());
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value, and adds
+   * them to a given collection in increasing order of cost. The first artwork of the year is
+   * searched once, then the following artworks are visited in order until the year or the cost
+   * bound is exceeded.
+   *
+   * @param <C>    type of the collection receiving the matches
+   * @param year   creation year of artwork
+   * @param cost   the maximum cost we would like to search for a artwork
+   * @param result collection to which every matching artwork is added
+   * @return result, after all the matching artworks have been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupAll(int year, double cost, C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    for (int index = lowerBound(year, Double.NEGATIVE_INFINITY); index != 0
+        && years[index] == year; index = next(index)) {
+      if (!ArtGallery.isAffordable(artworks[index], cost)) {
+        break; // the following artworks of that year are even more expensive
+      }
+      result.add(artworks[index]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Writes all the artwork stored within this gallery to a given destination, in the same format
+   * and order as ArtGallery.toString()
+   *
+   * @param out destination of the String representation of this gallery
+   * @throws IOException if out fails to append a character sequence
+   */
+  public void writeTo(Appendable out) throws IOException {
+
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
+    }
+
+    for (int index = first(); index != 0; index = next(index)) {
+      ArtGallery.writeArtwork(out, artworks[index]);
+    }
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+
+    StringBuilder representation = new StringBuilder();
+    try {
+      writeTo(representation);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // never thrown by a StringBuilder
+    }
+    return representation.toString();
+  }
+
+}
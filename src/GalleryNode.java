@@ -0,0 +1,273 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: GalleryNode.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class models a node of the ArtGallery binary search tree. On top of the artwork and the
+ * child references carried by a BSTNode, it stores the height of the subtree rooted at this node so
+ * that the balanced gallery can detect and repair imbalances with rotations, and the number of
+ * artworks stored in this subtree so that order statistics (rank, select) take logarithmic time.
+ * It also stores the total cost and the cheapest and most expensive artworks of this subtree, so
+ * that the sum, minimum and maximum of the costs of a range of artworks are combined from
+ * O(log n) subtrees instead of visiting every artwork of the range.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class GalleryNode extends BSTNode<Artwork> {
+
+  private int height; // number of nodes from this node down to the deepest leaf of its subtree
+  private int size; // number of nodes in the subtree rooted at this node
+  private double costSum; // total cost of the artworks of the subtree rooted at this node
+  private Artwork cheapest; // artwork of lowest cost of the subtree rooted at this node
+  private Artwork mostExpensive; // artwork of highest cost of the subtree rooted at this node
+
+  /**
+   * Creates a leaf GalleryNode carrying a given artwork
+   *
+   * @param data artwork carried by this node
+   * @throws NullPointerException if data is null
+   */
+  public GalleryNode(Artwork data) {
+    super(data);
+    this.height = 1;
+    this.size = 1;
+    this.costSum = data.getCost();
+    this.cheapest = data;
+    this.mostExpensive = data;
+  }
+
+  /**
+   * Creates a GalleryNode carrying a given artwork with a given left and right subtree
+   *
+   * @param data  artwork carried by this node
+   * @param left  reference to the left child
+   * @param right reference to the right child
+   * @throws NullPointerException if data is null
+   */
+  public GalleryNode(Artwork data, GalleryNode left, GalleryNode right) {
+    super(data, left, right);
+    update();
+  }
+
+  /**
+   * Getter of left child
+   *
+   * @return the left child of this node
+   */
+  @Override
+  public GalleryNode getLeft() {
+    return (GalleryNode) super.getLeft();
+  }
+
+  /**
+   * Getter of the right child
+   *
+   * @return the right child of this node
+   */
+  @Override
+  public GalleryNode getRight() {
+    return (GalleryNode) super.getRight();
+  }
+
+  /**
+   * Gets the height of the subtree rooted at this node, counting the number of nodes
+   *
+   * @return the height of the subtree rooted at this node
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the number of artworks stored in the subtree rooted at this node
+   *
+   * @return the size of the subtree rooted at this node
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the total cost of the artworks stored in the subtree rooted at this node
+   *
+   * @return the sum of the costs of the subtree rooted at this node
+   */
+  public double getCostSum() {
+    return costSum;
+  }
+
+  /**
+   * Gets the artwork of lowest cost stored in the subtree rooted at this node. Among artworks of
+   * the same cost, the smallest one with respect to Artwork.compareTo() is returned.
+   *
+   * @return the cheapest artwork of the subtree rooted at this node
+   */
+  public Artwork getCheapest() {
+    return cheapest;
+  }
+
+  /**
+   * Gets the artwork of highest cost stored in the subtree rooted at this node. Among artworks of
+   * the same cost, the largest one with respect to Artwork.compareTo() is returned.
+   *
+   * @return the most expensive artwork of the subtree rooted at this node
+   */
+  public Artwork getMostExpensive() {
+    return mostExpensive;
+  }
+
+  /**
+   * Gets the balance factor of this node
+   *
+   * @return the height of the left subtree minus the height of the right subtree
+   */
+  public int getBalance() {
+    return height(getLeft()) - height(getRight());
+  }
+
+  /**
+   * Recomputes the height, the size and the cost aggregates of this node from the ones of its
+   * children. It must be called every time one of the children of this node is replaced or changes
+   * its shape.
+   */
+  public void update() {
+    GalleryNode left = getLeft();
+    GalleryNode right = getRight();
+    this.height = 1 + Math.max(height(left), height(right));
+    this.size = 1 + size(left) + size(right);
+    this.costSum = costSum(left) + getData().getCost() + costSum(right);
+
+    // the left subtree comes before the data which comes before the right subtree, so ties are
+    // resolved by position without comparing the artworks
+    Artwork cheapest = getData();
+    Artwork mostExpensive = getData();
+    if (left != null && left.cheapest.getCost() <= cheapest.getCost()) {
+      cheapest = left.cheapest;
+    }
+    if (right != null && right.cheapest.getCost() < cheapest.getCost()) {
+      cheapest = right.cheapest;
+    }
+    if (left != null && left.mostExpensive.getCost() > mostExpensive.getCost()) {
+      mostExpensive = left.mostExpensive;
+    }
+    if (right != null && right.mostExpensive.getCost() >= mostExpensive.getCost()) {
+      mostExpensive = right.mostExpensive;
+    }
+    this.cheapest = cheapest;
+    this.mostExpensive = mostExpensive;
+  }
+
+  /**
+   * Gets the cheaper of two artworks. Artworks of the same cost are ordered with respect to the
+   * result of Artwork.compareTo() method, so the result does not depend on the order of the
+   * arguments.
+   *
+   * @param artwork      an artwork, can be null
+   * @param otherArtwork another artwork, can be null
+   * @return the artwork of lower cost, or the other artwork if one of them is null
+   */
+  protected static Artwork cheaper(Artwork artwork, Artwork otherArtwork) {
+    if (artwork == null) {
+      return otherArtwork;
+    }
+    if (otherArtwork == null) {
+      return artwork;
+    }
+    int compare = Double.compare(artwork.getCost(), otherArtwork.getCost());
+    if (compare == 0) {
+      compare = artwork.compareTo(otherArtwork);
+    }
+    return compare <= 0 ? artwork : otherArtwork;
+  }
+
+  /**
+   * Gets the more expensive of two artworks. Artworks of the same cost are ordered with respect to
+   * the result of Artwork.compareTo() method, so the result does not depend on the order of the
+   * arguments.
+   *
+   * @param artwork      an artwork, can be null
+   * @param otherArtwork another artwork, can be null
+   * @return the artwork of higher cost, or the other artwork if one of them is null
+   */
+  protected static Artwork moreExpensive(Artwork artwork, Artwork otherArtwork) {
+    if (artwork == null) {
+      return otherArtwork;
+    }
+    if (otherArtwork == null) {
+      return artwork;
+    }
+    int compare = Double.compare(artwork.getCost(), otherArtwork.getCost());
+    if (compare == 0) {
+      compare = artwork.compareTo(otherArtwork);
+    }
+    return compare >= 0 ? artwork : otherArtwork;
+  }
+
+  /**
+   * Gets the height of the subtree rooted at a given node
+   *
+   * @param node root of a subtree, can be null
+   * @return the height of the subtree rooted at node, and 0 if node is null
+   */
+  protected static int height(GalleryNode node) {
+    if (node == null) {
+      return 0;
+    }
+    return node.height;
+  }
+
+  /**
+   * Gets the number of artworks stored in the subtree rooted at a given node
+   *
+   * @param node root of a subtree, can be null
+   * @return the size of the subtree rooted at node, and 0 if node is null
+   */
+  protected static int size(GalleryNode node) {
+    if (node == null) {
+      return 0;
+    }
+    return node.size;
+  }
+
+  /**
+   * Gets the cheapest artwork of the subtree rooted at a given node
+   *
+   * @param node root of a subtree, can be null
+   * @return the cheapest artwork of the subtree rooted at node, and null if node is null
+   */
+  protected static Artwork cheapest(GalleryNode node) {
+    if (node == null) {
+      return null;
+    }
+    return node.cheapest;
+  }
+
+  /**
+   * Gets the most expensive artwork of the subtree rooted at a given node
+   *
+   * @param node root of a subtree, can be null
+   * @return the most expensive artwork of the subtree rooted at node, and null if node is null
+   */
+  protected static Artwork mostExpensive(GalleryNode node) {
+    if (node == null) {
+      return null;
+    }
+    return node.mostExpensive;
+  }
+
+  /**
+   * Gets the total cost of the artworks stored in the subtree rooted at a given node
+   *
+   * @param node root of a subtree, can be null
+   * @return the sum of the costs of the subtree rooted at node, and 0 if node is null
+   */
+  protected static double costSum(GalleryNode node) {
+    if (node == null) {
+      return 0.0;
+    }
+    return node.costSum;
+  }
+
+}
@@ -0,0 +1,109 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: LiveArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class models a live Artwork Gallery built on PersistentArtGallery. It holds a reference to
+ * the latest version of the catalog, and addArtwork() and buyArtwork() replace it with the version
+ * returned by the update. Updates swap versions with compare-and-set, so concurrent updates are
+ * never lost and never block each other, and each of them is retried on the latest version if
+ * another update was published in the meantime. snapshot() returns the latest version in O(1)
+ * time: it stays consistent, and can be read by any number of threads without locks, for as long
+ * as it is kept.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class LiveArtGallery {
+
+  private final AtomicReference<PersistentArtGallery> version; // latest version of the catalog
+
+  /**
+   * Creates a new empty LiveArtGallery
+   */
+  public LiveArtGallery() {
+    this(new PersistentArtGallery());
+  }
+
+  /**
+   * Creates a new LiveArtGallery starting from a given version
+   *
+   * @param version first version of the catalog
+   * @throws NullPointerException if version is null
+   */
+  public LiveArtGallery(PersistentArtGallery version) {
+    if (version == null) {
+      throw new NullPointerException("Gallery is null");
+    }
+    this.version = new AtomicReference<PersistentArtGallery>(version);
+  }
+
+  /**
+   * Gets the latest version of the catalog
+   *
+   * @return the latest version, which never changes afterwards
+   */
+  public PersistentArtGallery snapshot() {
+    return version.get();
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in the latest version
+   *
+   * @return the size of the latest version
+   */
+  public int size() {
+    return version.get().size();
+  }
+
+  /**
+   * Adds a new artwork piece to the catalog, publishing a new version
+   *
+   * @param newArtwork a new Artwork to add
+   * @return true if the newArtwork was successfully added, and false if there is a match with
+   *         newArtwork (same name and year) already stored in the latest version
+   * @throws NullPointerException if newArtwork is null
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    while (true) {
+      PersistentArtGallery current = version.get();
+      PersistentArtGallery next = current.addArtwork(newArtwork);
+      if (next == current) {
+        return false; // duplicate found, nothing to publish
+      }
+      if (version.compareAndSet(current, next)) {
+        return true;
+      }
+      // another update was published in the meantime: retry on it
+    }
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost, publishing a new version
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @return the new latest version
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public PersistentArtGallery buyArtwork(String name, int year, double cost) {
+    return version.updateAndGet(current -> current.buyArtwork(name, year, cost));
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within the latest version
+   *
+   * @return a String representation of all the artwork stored within the latest version
+   */
+  @Override
+  public String toString() {
+    return version.get().toString();
+  }
+
+}
@@ -0,0 +1,147 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: NameDictionary.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class models a dictionary of artwork names. Every distinct name is stored once and given an
+ * int id, so that the EncodedArtwork objects created with the same dictionary share their name
+ * instances and can check whether their names are equal by comparing two ints. The dictionary also
+ * keeps a code table giving the lexical rank of the names, so that the lexical order of two encoded
+ * names can be recovered by comparing two ints as well.
+ *
+ * The code table is rebuilt when the number of names added since its last build reaches the number
+ * of names it ranks, so its cost is amortized to O(log n) per new name. Names added in the meantime
+ * are compared as Strings. Reading the dictionary (decode, compare) is safe from any number of
+ * threads, but encoding new names must not run concurrently with any other call.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class NameDictionary {
+
+  private final HashMap<String, Integer> ids; // id of every encoded name
+  private final ArrayList<String> names; // encoded names, indexed by their id
+  private volatile int[] ranks; // lexical rank of the names whose id is smaller than its length
+
+  /**
+   * Creates a new empty NameDictionary
+   */
+  public NameDictionary() {
+    this.ids = new HashMap<String, Integer>();
+    this.names = new ArrayList<String>();
+    this.ranks = new int[0];
+  }
+
+  /**
+   * Gets the id of a name, adding the name to this dictionary if it is not stored yet
+   *
+   * @param name name to encode
+   * @return the id of name in this dictionary
+   * @throws NullPointerException if name is null
+   */
+  public int encode(String name) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id; // already encoded
+    }
+
+    int newId = names.size();
+    names.add(name);
+    ids.put(name, newId);
+
+    // rebuild the code table once it misses as many names as it ranks
+    if (names.size() >= 2 * ranks.length) {
+      rebuildRanks();
+    }
+
+    return newId;
+  }
+
+  /**
+   * Gets the id of a name without adding it to this dictionary
+   *
+   * @param name name to search
+   * @return the id of name in this dictionary, or -1 if name is not stored in this dictionary
+   */
+  public int id(String name) {
+
+    Integer id = ids.get(name);
+    if (id == null) {
+      return -1;
+    }
+    return id;
+  }
+
+  /**
+   * Gets the name of a given id. The same String instance is returned for every call with the
+   * same id.
+   *
+   * @param id id of a name of this dictionary
+   * @return the name of that id
+   * @throws IndexOutOfBoundsException if there is no name of that id in this dictionary
+   */
+  public String decode(int id) {
+    return names.get(id);
+  }
+
+  /**
+   * Compares the names of two ids in lexical order, as String.compareTo() would do
+   *
+   * @param id      id of a name of this dictionary
+   * @param otherId id of another name of this dictionary
+   * @return 0 if both ids are equal, an integer less than 0 if the name of id comes first in lexical
+   *         order, and an integer greater than 0 otherwise
+   */
+  public int compare(int id, int otherId) {
+
+    if (id == otherId) {
+      return 0;
+    }
+
+    int[] ranks = this.ranks;
+    if (id < ranks.length && otherId < ranks.length) {
+      return Integer.compare(ranks[id], ranks[otherId]); // both are in the code table
+    }
+
+    return names.get(id).compareTo(names.get(otherId));
+  }
+
+  /**
+   * Returns the number of names stored in this dictionary
+   *
+   * @return the number of distinct names encoded so far
+   */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Sorts all the names of this dictionary and publishes the lexical rank of each of them as the
+   * new code table
+   */
+  private void rebuildRanks() {
+
+    Integer[] order = new Integer[names.size()];
+    for (int id = 0; id < order.length; id++) {
+      order[id] = id;
+    }
+    Arrays.sort(order, (id, otherId) -> names.get(id).compareTo(names.get(otherId)));
+
+    int[] newRanks = new int[order.length];
+    for (int rank = 0; rank < order.length; rank++) {
+      newRanks[order[rank]] = rank;
+    }
+    this.ranks = newRanks;
+  }
+
+}
@@ -0,0 +1,183 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: NameIndex.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * This class models a secondary index of artworks searched by the beginning of any word of their
+ * name, ignoring case. Every suffix of a name which starts at the beginning of a word is a key of
+ * a sorted map, so the keys starting with a query are next to each other: they are found in
+ * O(log n) time, then their k artworks are listed in O(k) time. For example "Monet, Water Lilies"
+ * is found by the queries "Monet", "water li" and "Lil". A key is not a copy of its suffix but a
+ * reference to the normalized name with the offset of the suffix, compared in place, so an
+ * artwork costs one normalized name and one small key per word, whatever the length of its name.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class NameIndex {
+
+  private final TreeMap<Suffix, TreeSet<Artwork>> suffixes; // artworks by word-starting suffix
+
+  /**
+   * Suffix of a normalized name, given by the name and the offset where the suffix starts. Suffixes
+   * are compared by their characters in lexical order, as String.compareTo() would compare them
+   * once copied.
+   */
+  private static class Suffix implements Comparable<Suffix> {
+
+    private final String name; // normalized name
+    private final int offset; // position of the first character of the suffix in name
+
+    /**
+     * Creates a suffix of a normalized name
+     *
+     * @param name   normalized name
+     * @param offset position of the first character of the suffix in name
+     */
+    private Suffix(String name, int offset) {
+      this.name = name;
+      this.offset = offset;
+    }
+
+    /**
+     * Checks whether this suffix starts with a given normalized query
+     *
+     * @param prefix normalized query
+     * @return true if the characters of this suffix start with prefix, false otherwise
+     */
+    private boolean startsWith(String prefix) {
+      return name.startsWith(prefix, offset);
+    }
+
+    /**
+     * Compares this suffix with another one in lexical order, without copying either of them
+     *
+     * @param other other suffix
+     * @return 0 if both suffixes have the same characters, an integer less than 0 if this suffix
+     *         comes first in lexical order, and an integer greater than 0 otherwise
+     */
+    @Override
+    public int compareTo(Suffix other) {
+
+      int length = name.length() - offset;
+      int otherLength = other.name.length() - other.offset;
+
+      for (int i = 0; i < Math.min(length, otherLength); i++) {
+        char c = name.charAt(offset + i);
+        char otherC = other.name.charAt(other.offset + i);
+        if (c != otherC) {
+          return c - otherC; // first different character
+        }
+      }
+      return length - otherLength; // one suffix starts with the other
+    }
+  }
+
+  /**
+   * Creates a new empty NameIndex
+   */
+  public NameIndex() {
+    this.suffixes = new TreeMap<Suffix, TreeSet<Artwork>>();
+  }
+
+  /**
+   * Normalizes a name or a query so that searches ignore case
+   *
+   * @param text name or query
+   * @return text in lower case
+   */
+  protected static String normalize(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Checks whether a word starts at a given position of a normalized name, that is whether the
+   * character at that position is a letter or a digit which does not follow another one
+   *
+   * @param name     normalized name
+   * @param position position of a character of name
+   * @return true if a word starts at position, false otherwise
+   */
+  private static boolean isWordStart(String name, int position) {
+    return Character.isLetterOrDigit(name.charAt(position))
+        && (position == 0 || !Character.isLetterOrDigit(name.charAt(position - 1)));
+  }
+
+  /**
+   * Adds an artwork to this index, under every suffix of its name starting a word
+   *
+   * @param artwork artwork to add
+   */
+  public void add(Artwork artwork) {
+
+    String name = normalize(artwork.getName());
+
+    for (int position = 0; position < name.length(); position++) {
+      if (isWordStart(name, position)) {
+        suffixes.computeIfAbsent(new Suffix(name, position), suffix -> new TreeSet<Artwork>())
+            .add(artwork);
+      }
+    }
+  }
+
+  /**
+   * Removes an artwork from this index
+   *
+   * @param artwork artwork to remove
+   */
+  public void remove(Artwork artwork) {
+
+    String name = normalize(artwork.getName());
+
+    for (int position = 0; position < name.length(); position++) {
+      if (isWordStart(name, position)) {
+        Suffix suffix = new Suffix(name, position);
+        TreeSet<Artwork> artworks = suffixes.get(suffix);
+        if (artworks != null && artworks.remove(artwork) && artworks.isEmpty()) {
+          suffixes.remove(suffix);
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches the artworks having a word of their name starting with a given query, ignoring case.
+   * The artworks are listed in the lexical order of their matching suffix, then with respect to
+   * the result of Artwork.compareTo() method. An artwork matching the query at several words is
+   * listed once.
+   *
+   * @param query beginning of the searched words, which may span several words
+   * @param limit maximum number of artworks to return
+   * @return the matching artworks, at most limit of them
+   */
+  public LinkedHashSet<Artwork> search(String query, int limit) {
+
+    String prefix = normalize(query);
+    LinkedHashSet<Artwork> result = new LinkedHashSet<Artwork>();
+
+    for (Map.Entry<Suffix, TreeSet<Artwork>> entry : suffixes.tailMap(new Suffix(prefix, 0), true)
+        .entrySet()) {
+
+      if (!entry.getKey().startsWith(prefix)) {
+        break; // keys are sorted, so no following key starts with the query
+      }
+
+      for (Artwork artwork : entry.getValue()) {
+        if (result.size() >= limit) {
+          return result; // enough artworks
+        }
+        result.add(artwork);
+      }
+    }
+
+    return result;
+  }
+
+}
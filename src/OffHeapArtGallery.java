@@ -0,0 +1,814 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: OffHeapArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * This class models an Artwork Gallery whose nodes are stored outside of the Java heap, for very
+ * large catalogs. Each node is a fixed-width record of 32 bytes in direct ByteBuffer chunks of
+ * 1 MiB: the indexes of its left and right children, the height of its subtree, the year and cost
+ * of its artwork, and the offset of its name in a separate off-heap string area. The tree is an
+ * AVL tree linked by record indexes instead of references, so the garbage collector only sees
+ * the chunks, whatever the number of artworks. Artwork objects are only created for the results
+ * returned to the caller. Like the ArtworkIndex of ArtGallery, an off-heap open addressing hash
+ * table maps the name and year of every artwork to its record, so lookup(), addArtwork() and
+ * buyArtwork() find their match in O(1) expected time.
+ *
+ * Names are stored as UTF-16 code units so that they are compared exactly as String.compareTo()
+ * does. Records of bought artworks are reused by later additions, but the space of their names is
+ * not reclaimed.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class OffHeapArtGallery {
+
+  private static final int RECORD_BYTES = 32; // size of a node record
+  private static final int LEFT = 0; // offset of the index of the left child, 0 if none
+  private static final int RIGHT = 4; // offset of the index of the right child, 0 if none
+  private static final int HEIGHT = 8; // offset of the height of the subtree
+  private static final int YEAR = 12; // offset of the year of creation
+  private static final int COST = 16; // offset of the cost
+  private static final int NAME = 24; // offset of the offset of the name in the string area
+  private static final int RECORD_BITS = 15; // log2 of the number of records per chunk
+  private static final int RECORD_MASK = (1 << RECORD_BITS) - 1; // index of a record in its chunk
+  private static final int NAME_CHUNK_BYTES = 1 << 20; // size of a chunk of the string area
+  private static final int INITIAL_SLOTS = 16; // number of slots of the hash table of a new gallery
+
+  private final ArrayList<ByteBuffer> records; // chunks of node records, record 0 is unused
+  private final ArrayList<ByteBuffer> names; // chunks of the string area
+  private int root; // index of the root record, 0 if this gallery is empty
+  private int size; // number of artworks in this gallery
+  private int nextRecord; // index of the first record never used
+  private int freeRecords; // index of the first record of the free list, linked by LEFT, or 0
+  private long nameEnd; // offset of the first free byte of the string area
+  private ByteBuffer slots; // hash table of record indexes by name and year, 0 if empty
+  private int slotMask; // number of slots of the hash table minus 1, a power of 2 minus 1
+
+  /**
+   * Creates a new empty OffHeapArtGallery
+   */
+  public OffHeapArtGallery() {
+    this.records = new ArrayList<ByteBuffer>();
+    this.names = new ArrayList<ByteBuffer>();
+    this.nextRecord = 1;
+    this.slots = newSlots(INITIAL_SLOTS);
+    this.slotMask = INITIAL_SLOTS - 1;
+  }
+
+  /**
+   * Gets the chunk storing a record
+   *
+   * @param node index of the record
+   * @return the chunk of the record
+   */
+  private ByteBuffer chunk(int node) {
+    return records.get(node >>> RECORD_BITS);
+  }
+
+  /**
+   * Gets the position of a field of a record in its chunk
+   *
+   * @param node  index of the record
+   * @param field offset of the field in the record
+   * @return the position of the field in the chunk of the record
+   */
+  private static int position(int node, int field) {
+    return (node & RECORD_MASK) * RECORD_BYTES + field;
+  }
+
+  /**
+   * Gets the index of the left child of a record
+   *
+   * @param node index of the record
+   * @return the index of the left child, 0 if none
+   */
+  private int left(int node) {
+    return chunk(node).getInt(position(node, LEFT));
+  }
+
+  /**
+   * Gets the index of the right child of a record
+   *
+   * @param node index of the record
+   * @return the index of the right child, 0 if none
+   */
+  private int right(int node) {
+    return chunk(node).getInt(position(node, RIGHT));
+  }
+
+  /**
+   * Gets the year of creation of the artwork of a record
+   *
+   * @param node index of the record
+   * @return the year of the artwork
+   */
+  private int year(int node) {
+    return chunk(node).getInt(position(node, YEAR));
+  }
+
+  /**
+   * Gets the cost of the artwork of a record
+   *
+   * @param node index of the record
+   * @return the cost of the artwork
+   */
+  private double cost(int node) {
+    return chunk(node).getDouble(position(node, COST));
+  }
+
+  /**
+   * Gets the offset of the name of the artwork of a record
+   *
+   * @param node index of the record
+   * @return the offset of the name in the string area
+   */
+  private long name(int node) {
+    return chunk(node).getLong(position(node, NAME));
+  }
+
+  /**
+   * Sets the left child of a record
+   *
+   * @param node index of the record
+   * @param left index of the new left child, 0 if none
+   */
+  private void setLeft(int node, int left) {
+    chunk(node).putInt(position(node, LEFT), left);
+  }
+
+  /**
+   * Sets the right child of a record
+   *
+   * @param node  index of the record
+   * @param right index of the new right child, 0 if none
+   */
+  private void setRight(int node, int right) {
+    chunk(node).putInt(position(node, RIGHT), right);
+  }
+
+  /**
+   * Gets the height of the subtree rooted at a record
+   *
+   * @param node index of the record, or 0
+   * @return the height of the subtree, and 0 if node is 0
+   */
+  private int height(int node) {
+    return node == 0 ? 0 : chunk(node).getInt(position(node, HEIGHT));
+  }
+
+  /**
+   * Recomputes the height of a record from the heights of its children
+   *
+   * @param node index of the record
+   */
+  private void update(int node) {
+    int height = 1 + Math.max(height(left(node)), height(right(node)));
+    chunk(node).putInt(position(node, HEIGHT), height);
+  }
+
+  /**
+   * Creates a leaf record, reusing a freed record if there is one
+   *
+   * @param year year of creation of the artwork
+   * @param cost cost of the artwork
+   * @param name offset of the name of the artwork in the string area
+   * @return the index of the new record
+   */
+  private int newRecord(int year, double cost, long name) {
+
+    int node;
+    if (freeRecords != 0) {
+      node = freeRecords;
+      freeRecords = left(node);
+    } else {
+      node = nextRecord++;
+      if (node >>> RECORD_BITS == records.size()) {
+        records.add(ByteBuffer.allocateDirect(RECORD_BYTES << RECORD_BITS)
+            .order(ByteOrder.nativeOrder()));
+      }
+    }
+
+    ByteBuffer chunk = chunk(node);
+    chunk.putInt(position(node, LEFT), 0);
+    chunk.putInt(position(node, RIGHT), 0);
+    chunk.putInt(position(node, HEIGHT), 1);
+    chunk.putInt(position(node, YEAR), year);
+    chunk.putDouble(position(node, COST), cost);
+    chunk.putLong(position(node, NAME), name);
+    return node;
+  }
+
+  /**
+   * Adds a record to the free list
+   *
+   * @param node index of the record
+   */
+  private void freeRecord(int node) {
+    setLeft(node, freeRecords);
+    freeRecords = node;
+  }
+
+  /**
+   * Stores a name in the string area, as its length followed by its UTF-16 code units. A name
+   * never spans two chunks.
+   *
+   * @param name name to store
+   * @return the offset of the name in the string area
+   * @throws IllegalArgumentException if name does not fit in a chunk
+   */
+  private long storeName(String name) {
+
+    int bytes = 4 + 2 * name.length();
+    if (bytes > NAME_CHUNK_BYTES) {
+      throw new IllegalArgumentException("Invalid artwork name. Too long");
+    }
+
+    if (nameEnd % NAME_CHUNK_BYTES + bytes > NAME_CHUNK_BYTES) {
+      nameEnd += NAME_CHUNK_BYTES - nameEnd % NAME_CHUNK_BYTES; // start a new chunk
+    }
+    if (nameEnd / NAME_CHUNK_BYTES == names.size()) {
+      names.add(ByteBuffer.allocateDirect(NAME_CHUNK_BYTES).order(ByteOrder.nativeOrder()));
+    }
+
+    long offset = nameEnd;
+    ByteBuffer chunk = names.get((int) (offset / NAME_CHUNK_BYTES));
+    int position = (int) (offset % NAME_CHUNK_BYTES);
+    chunk.putInt(position, name.length());
+    for (int i = 0; i < name.length(); i++) {
+      chunk.putChar(position + 4 + 2 * i, name.charAt(i));
+    }
+
+    nameEnd += bytes;
+    return offset;
+  }
+
+  /**
+   * Reads a name from the string area
+   *
+   * @param offset offset of the name in the string area
+   * @return the name
+   */
+  private String readName(long offset) {
+
+    ByteBuffer chunk = names.get((int) (offset / NAME_CHUNK_BYTES));
+    int position = (int) (offset % NAME_CHUNK_BYTES);
+    char[] name = new char[chunk.getInt(position)];
+    for (int i = 0; i < name.length; i++) {
+      name[i] = chunk.getChar(position + 4 + 2 * i);
+    }
+    return new String(name);
+  }
+
+  /**
+   * Compares a name of the string area with a String in lexical order, as String.compareTo()
+   * does, without reading the stored name into a String
+   *
+   * @param offset offset of the stored name in the string area
+   * @param name   name to compare with
+   * @return 0 if both names are equal, an integer less than 0 if the stored name comes first in
+   *         lexical order, and an integer greater than 0 otherwise
+   */
+  private int compareName(long offset, String name) {
+
+    ByteBuffer chunk = names.get((int) (offset / NAME_CHUNK_BYTES));
+    int position = (int) (offset % NAME_CHUNK_BYTES);
+    int length = chunk.getInt(position);
+
+    for (int i = 0; i < Math.min(length, name.length()); i++) {
+      char stored = chunk.getChar(position + 4 + 2 * i);
+      if (stored != name.charAt(i)) {
+        return stored - name.charAt(i);
+      }
+    }
+    return length - name.length();
+  }
+
+  /**
+   * Compares the artwork of a record with a key, in the order of Artwork.compareTo() (year, cost,
+   * name)
+   *
+   * @param node index of the record
+   * @param year year of the key
+   * @param cost cost of the key
+   * @param name name of the key
+   * @return 0 if the artwork of node has the key, an integer less than 0 if it is smaller than the
+   *         key, and an integer greater than 0 otherwise
+   */
+  private int compare(int node, int year, double cost, String name) {
+
+    int nodeYear = year(node);
+    if (nodeYear != year) {
+      return nodeYear < year ? -1 : 1;
+    }
+    double nodeCost = cost(node);
+    if (nodeCost != cost) {
+      return nodeCost < cost ? -1 : 1;
+    }
+    return compareName(name(node), name);
+  }
+
+  /**
+   * Creates the Artwork stored in a record
+   *
+   * @param node index of the record
+   * @return a new Artwork with the name, year and cost of the record
+   */
+  private Artwork artwork(int node) {
+    return new Artwork(readName(name(node)), year(node), cost(node));
+  }
+
+  /**
+   * Allocates an empty off-heap hash table
+   *
+   * @param count number of slots, a power of 2
+   * @return a buffer of count empty slots
+   */
+  private static ByteBuffer newSlots(int count) {
+    return ByteBuffer.allocateDirect(4 * count).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Computes the hash of the key of a record, equal to the hash ArtworkIndex computes from the
+   * name and year of the same artwork
+   *
+   * @param node index of the record
+   * @return the hash of the name and year of the artwork of node
+   */
+  private int hash(int node) {
+
+    long offset = name(node);
+    ByteBuffer chunk = names.get((int) (offset / NAME_CHUNK_BYTES));
+    int position = (int) (offset % NAME_CHUNK_BYTES);
+    int length = chunk.getInt(position);
+
+    // same computation as String.hashCode()
+    int nameHash = 0;
+    for (int i = 0; i < length; i++) {
+      nameHash = 31 * nameHash + chunk.getChar(position + 4 + 2 * i);
+    }
+    return ArtworkIndex.hash(nameHash, year(node));
+  }
+
+  /**
+   * Searches the record of the artwork of a given name and year in the hash table, from the slot
+   * given by the hash of the key to the first empty slot
+   *
+   * @param name name of the artwork
+   * @param year year of creation of the artwork
+   * @return the index of the record, or 0 if there is no artwork of that name and year
+   */
+  private int find(String name, int year) {
+
+    for (int slot = ArtworkIndex.hash(name, year) & slotMask;; slot = (slot + 1) & slotMask) {
+      int node = slots.getInt(4 * slot);
+      if (node == 0) {
+        return 0; // empty slot, no match
+      }
+      if (year(node) == year && compareName(name(node), name) == 0) {
+        return node; // match found
+      }
+    }
+  }
+
+  /**
+   * Adds a record to the hash table, growing the table to keep its load factor at most 1/2
+   *
+   * @param node index of a record which is not in the hash table
+   */
+  private void index(int node) {
+
+    int slot = hash(node) & slotMask;
+    while (slots.getInt(4 * slot) != 0) {
+      slot = (slot + 1) & slotMask;
+    }
+    slots.putInt(4 * slot, node);
+
+    if (2 * size > slotMask + 1) {
+      resize(2 * (slotMask + 1));
+    }
+  }
+
+  /**
+   * Removes a record from the hash table. The records following it in its probe sequence are
+   * shifted back, so that no search stops at the freed slot too early.
+   *
+   * @param node index of a record of the hash table
+   */
+  private void unindex(int node) {
+
+    int slot = hash(node) & slotMask;
+    while (slots.getInt(4 * slot) != node) {
+      slot = (slot + 1) & slotMask;
+    }
+
+    // backward shift: move up every following record which may be reached from the freed slot
+    int free = slot;
+    for (int next = (free + 1) & slotMask; slots.getInt(4 * next) != 0;
+        next = (next + 1) & slotMask) {
+      int home = hash(slots.getInt(4 * next)) & slotMask;
+      // next can move to free only if its home slot is not in the cyclic range (free, next]
+      if (((next - home) & slotMask) >= ((next - free) & slotMask)) {
+        slots.putInt(4 * free, slots.getInt(4 * next));
+        free = next;
+      }
+    }
+    slots.putInt(4 * free, 0);
+  }
+
+  /**
+   * Moves all the records of the hash table to a new table
+   *
+   * @param count number of slots of the new table, a power of 2
+   */
+  private void resize(int count) {
+
+    ByteBuffer oldSlots = slots;
+    int oldCount = slotMask + 1;
+    slots = newSlots(count);
+    slotMask = count - 1;
+
+    for (int oldSlot = 0; oldSlot < oldCount; oldSlot++) {
+      int node = oldSlots.getInt(4 * oldSlot);
+      if (node != 0) {
+        int slot = hash(node) & slotMask;
+        while (slots.getInt(4 * slot) != 0) {
+          slot = (slot + 1) & slotMask;
+        }
+        slots.putInt(4 * slot, node);
+      }
+    }
+  }
+
+  /**
+   * Checks whether this gallery is empty
+   *
+   * @return true if this gallery is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this gallery
+   *
+   * @return the size of this gallery
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the height of the tree storing this gallery, counting the number of nodes
+   *
+   * @return the height of this gallery
+   */
+  public int height() {
+    return height(root);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name, year, and cost.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork (same name and year) in this gallery, and
+   *         false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
+  }
+
+  /**
+   * Checks whether this gallery contains a Artwork given its name and year, without creating any
+   * object and without checking the validity of the key: an invalid key has no match.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this gallery, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    return find(name, year) != 0;
+  }
+
+  /**
+   * Adds a new artwork piece to this gallery
+   *
+   * @param newArtwork a new Artwork to add to this gallery
+   * @return true if the newArtwork was successfully added to this gallery, and returns false if
+   *         there is a match with this Artwork (same name and year) already stored in gallery.
+   * @throws NullPointerException if newArtwork is null
+   */
+  public boolean addArtwork(Artwork newArtwork) {
+
+    if (newArtwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+
+    String name = newArtwork.getName();
+    int year = newArtwork.getYear();
+    double cost = newArtwork.getCost();
+
+    if (find(name, year) != 0) {
+      return false; // match already stored
+    }
+
+    if (root == 0) {
+      root = newRecord(year, cost, storeName(name));
+      size++;
+      index(root);
+      return true;
+    }
+
+    int[] path = new int[height(root)];
+    int depth = 0;
+    for (int node = root; node != 0;) {
+      path[depth++] = node;
+      node = compare(node, year, cost, name) < 0 ? right(node) : left(node);
+    }
+
+    int leaf = newRecord(year, cost, storeName(name));
+    int parent = path[depth - 1];
+    if (compare(parent, year, cost, name) < 0) {
+      setRight(parent, leaf);
+    } else {
+      setLeft(parent, leaf);
+    }
+
+    root = retrace(path, depth);
+    size++;
+    index(leaf);
+    return true;
+  }
+
+  /**
+   * Buy an artwork with the specified name, year and cost. The artwork is matched by its name and
+   * year in the hash table, then its record is unlinked from the tree, its successor record taking
+   * its place if it has two children.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public void buyArtwork(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    int target = find(name, year);
+    if (target == 0) {
+      throw new NoSuchElementException("No match found");
+    }
+
+    // path from the root down to the parent of the target, following the full key of the target
+    int[] path = new int[height(root)];
+    int depth = 0;
+    double key = cost(target);
+    for (int node = root; node != target;) {
+      path[depth++] = node;
+      node = compare(node, year, key, name) < 0 ? right(node) : left(node);
+    }
+    int targetDepth = depth;
+
+    int replacement;
+    if (left(target) != 0 && right(target) != 0) {
+      // two children: the successor record is unlinked and takes the place of the target
+      path[depth++] = target; // replaced by the successor once it is found
+      int successor = right(target);
+      while (left(successor) != 0) {
+        path[depth++] = successor;
+        successor = left(successor);
+      }
+      if (path[depth - 1] != target) {
+        setLeft(path[depth - 1], right(successor));
+        setRight(successor, right(target));
+      }
+      setLeft(successor, left(target));
+      path[targetDepth] = successor;
+      replacement = successor;
+    } else {
+      // at most one child, which replaces the target
+      replacement = left(target) != 0 ? left(target) : right(target);
+    }
+
+    if (targetDepth == 0) {
+      root = replacement;
+    } else if (left(path[targetDepth - 1]) == target) {
+      setLeft(path[targetDepth - 1], replacement);
+    } else {
+      setRight(path[targetDepth - 1], replacement);
+    }
+    if (depth > 0) {
+      root = retrace(path, depth);
+    }
+
+    unindex(target);
+    freeRecord(target);
+    size--;
+  }
+
+  /**
+   * Walks back up a path of records from the root down to the parent of a modified record,
+   * rebalancing each of them and linking every rebalanced subtree back to its parent
+   *
+   * @param path  records visited from the root (path[0]) down to the parent of the modified record
+   * @param depth number of records stored in path
+   * @return the new root
+   */
+  private int retrace(int[] path, int depth) {
+
+    int subtree = 0;
+    for (int i = depth - 1; i >= 0; i--) {
+      int node = path[i];
+      subtree = rebalance(node);
+      if (i > 0 && subtree != node) {
+        int parent = path[i - 1];
+        if (left(parent) == node) {
+          setLeft(parent, subtree);
+        } else {
+          setRight(parent, subtree);
+        }
+      }
+    }
+    return subtree;
+  }
+
+  /**
+   * Updates the height of a record and restores the AVL property of its subtree with one or two
+   * rotations if its children heights differ by more than one
+   *
+   * @param node index of the record
+   * @return the index of the new root of the subtree
+   */
+  private int rebalance(int node) {
+
+    update(node);
+    int balance = height(left(node)) - height(right(node));
+
+    if (balance > 1) {
+      int left = left(node);
+      if (height(left(left)) < height(right(left))) {
+        setLeft(node, rotateLeft(left));
+      }
+      return rotateRight(node);
+    } else if (balance < -1) {
+      int right = right(node);
+      if (height(right(right)) < height(left(right))) {
+        setRight(node, rotateRight(right));
+      }
+      return rotateLeft(node);
+    }
+
+    return node;
+  }
+
+  /**
+   * Rotates a subtree to the left
+   *
+   * @param node index of the root of the subtree, which has a right child
+   * @return the index of the new root of the subtree
+   */
+  private int rotateLeft(int node) {
+    int pivot = right(node);
+    setRight(node, left(pivot));
+    setLeft(pivot, node);
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  /**
+   * Rotates a subtree to the right
+   *
+   * @param node index of the root of the subtree, which has a left child
+   * @return the index of the new root of the subtree
+   */
+  private int rotateRight(int node) {
+    int pivot = left(node);
+    setLeft(node, right(pivot));
+    setRight(pivot, node);
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  /**
+   * Gets the recent best Artwork in this gallery (meaning the largest artwork in this gallery)
+   *
+   * @return the best (largest) Artwork in this gallery, and null if this gallery is empty.
+   */
+  public Artwork getBestArtwork() {
+
+    if (root == 0) {
+      return null;
+    }
+
+    int node = root;
+    while (right(node) != 0) {
+      node = right(node);
+    }
+    return artwork(node);
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost, in increasing order of cost. If no artwork satisfies the lookup query, this
+   *         method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+
+    ArrayList<Artwork> result = new ArrayList<Artwork>();
+    int[] stack = new int[height(root)];
+    int top = 0;
+    int node = root;
+
+    // in-order traversal from the first record of the year, until the year or cost is exceeded
+    while (node != 0 || top > 0) {
+      while (node != 0) {
+        if (year(node) < year) {
+          node = right(node); // node and its left subtree are before the year
+        } else {
+          stack[top++] = node;
+          node = left(node);
+        }
+      }
+      if (top == 0) {
+        break; // all the following artworks are before the year
+      }
+      node = stack[--top];
+      if (year(node) > year || cost - cost(node) < -ArtGallery.COST_TOLERANCE) {
+        break; // all the following artworks are after the year or more expensive
+      }
+      result.add(artwork(node));
+      node = right(node);
+    }
+
+    return result;
+  }
+
+  /**
+   * Writes all the artwork stored within this gallery to a given destination, in the same format
+   * and order as ArtGallery.toString()
+   *
+   * @param out destination of the String representation of this gallery
+   * @throws IOException if out fails to append a character sequence
+   */
+  public void writeTo(Appendable out) throws IOException {
+
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
+    }
+
+    int[] stack = new int[height(root)];
+    int top = 0;
+    int node = root;
+    while (node != 0 || top > 0) {
+      while (node != 0) {
+        stack[top++] = node;
+        node = left(node);
+      }
+      node = stack[--top];
+      ArtGallery.writeArtwork(out, artwork(node));
+      node = right(node);
+    }
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this gallery, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this gallery
+   */
+  @Override
+  public String toString() {
+
+    StringBuilder representation = new StringBuilder();
+    try {
+      writeTo(representation);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // never thrown by a StringBuilder
+    }
+    return representation.toString();
+  }
+
+}
@@ -0,0 +1,505 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: PersistentArtGallery.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+/**
+ * This class models a persistent Artwork Gallery: every instance is an immutable version of the
+ * catalog. addArtwork() and buyArtwork() never modify a version, they return a new one which
+ * shares all of its nodes with the previous version except the copies of the nodes on the path
+ * from the root to the added or removed artwork. The tree is kept balanced (AVL), so each update
+ * copies O(log n) nodes.
+ *
+ * Like ArtGallery, a version identifies its artworks by their name and year, whatever their cost.
+ * The same artworks are therefore also stored in a second persistent AVL tree ordered by year and
+ * name, which takes the place of the hash index of ArtGallery: lookups and duplicate checks go down
+ * this tree in O(log n) time even if the given cost differs from the cost of the stored artwork.
+ *
+ * A live catalog is a LiveArtGallery, which holds a reference to its latest version replaced by
+ * the version returned by each update. Reading that reference is an O(1) snapshot which stays
+ * consistent, and can be read by any number of threads without locks, for as long as it is kept.
+ *
+ * @author Marin Suzuki & Xingzhen Cai
+ *
+ */
+public class PersistentArtGallery {
+
+  private final GalleryNode root; // root node of this version, never modified
+  private final GalleryNode keys; // root of the same artworks ordered by year and name
+  private final int size; // number of artworks in this version
+
+  /**
+   * Creates a new empty PersistentArtGallery
+   */
+  public PersistentArtGallery() {
+    this(null, null, 0);
+  }
+
+  /**
+   * Creates a version of the gallery from its roots
+   *
+   * @param root root node of the version
+   * @param keys root node of the artworks of the version ordered by year and name
+   * @param size number of artworks in the version
+   */
+  private PersistentArtGallery(GalleryNode root, GalleryNode keys, int size) {
+    this.root = root;
+    this.keys = keys;
+    this.size = size;
+  }
+
+  /**
+   * Checks whether this version is empty
+   *
+   * @return true if this version contains no artwork, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the number of artwork pieces stored in this version
+   *
+   * @return the size of this version
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the height of the tree storing this version, counting the number of nodes
+   *
+   * @return the height of this version
+   */
+  public int height() {
+    return GalleryNode.height(this.root);
+  }
+
+  /**
+   * Returns a snapshot of this version. Since versions are immutable, this is the version itself.
+   *
+   * @return this version
+   */
+  public PersistentArtGallery snapshot() {
+    return this;
+  }
+
+  /**
+   * Checks whether this version contains a Artwork given its name, year, and cost. The match is
+   * found even if cost differs from the cost of the stored artwork.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @param cost cost of the Artwork to search
+   * @return true if there is a match with this Artwork in this version, and false otherwise
+   */
+  public boolean lookup(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+    return lookup(name, year);
+  }
+
+  /**
+   * Checks whether this version contains a Artwork given its name and year. The key is compared
+   * against the stored artworks directly, so this method neither creates any object nor checks the
+   * validity of the key: an invalid key has no match.
+   *
+   * @param name name of the Artwork to search
+   * @param year year of creation of the Artwork to search
+   * @return true if there is an artwork of that name and year in this version, and false otherwise
+   * @throws NullPointerException if name is null
+   */
+  public boolean lookup(String name, int year) {
+
+    if (name == null) {
+      throw new NullPointerException("Name is null");
+    }
+
+    return getHelper(name, year, this.keys) != null;
+  }
+
+  /**
+   * Compares the artwork of a node of the tree ordered by year and name with a given key
+   *
+   * @param data artwork of the node
+   * @param name name of the key
+   * @param year year of creation of the key
+   * @return a negative integer, zero, or a positive integer as data is less than, equal to, or
+   *         greater than the key
+   */
+  private static int compareKey(Artwork data, String name, int year) {
+
+    if (data.getYear() != year) {
+      return Integer.compare(data.getYear(), year);
+    }
+    return data.getName().compareTo(name);
+  }
+
+  /**
+   * Helper method which searches the artwork of a given name and year in the subtree rooted at
+   * current, ordered by year and name. The search walks down a single path of the tree in a loop.
+   *
+   * @param name    name of the searched artwork
+   * @param year    year of creation of the searched artwork
+   * @param current "root" of the subtree ordered by year and name
+   * @return the stored artwork of that name and year, or null if there is none
+   */
+  private static Artwork getHelper(String name, int year, GalleryNode current) {
+
+    while (current != null) {
+
+      int compare = compareKey(current.getData(), name, year);
+      if (compare == 0) {
+        return current.getData(); // matched found
+      }
+      current = compare < 0 ? current.getRight() : current.getLeft();
+    }
+
+    return null;
+  }
+
+  /**
+   * Recursive helper method which returns a copy of the subtree rooted at current, ordered by year
+   * and name, with a new artwork added to it. The key of the new artwork must not be present in
+   * the subtree. Only the nodes on the path to the new leaf are copied.
+   *
+   * @param newArtwork The Artwork to be added
+   * @param current    "root" of the subtree ordered by year and name
+   * @return the "root" of the new subtree
+   */
+  private static GalleryNode addKeyHelper(Artwork newArtwork, GalleryNode current) {
+
+    if (current == null) {
+      return new GalleryNode(newArtwork);
+    }
+
+    if (compareKey(current.getData(), newArtwork.getName(), newArtwork.getYear()) < 0) {
+      return balance(current.getData(), current.getLeft(),
+          addKeyHelper(newArtwork, current.getRight()));
+    }
+    return balance(current.getData(), addKeyHelper(newArtwork, current.getLeft()),
+        current.getRight());
+  }
+
+  /**
+   * Recursive helper method which returns a copy of the subtree rooted at current, ordered by year
+   * and name, without the artwork of a given name and year. The key must be present in the
+   * subtree. Only the nodes on the path to the removed artwork and to its successor are copied.
+   *
+   * @param name    name of the artwork to remove
+   * @param year    year of creation of the artwork to remove
+   * @param current "root" of the subtree ordered by year and name
+   * @return the "root" of the new subtree
+   */
+  private static GalleryNode removeKeyHelper(String name, int year, GalleryNode current) {
+
+    int compare = compareKey(current.getData(), name, year);
+
+    if (compare == 0) { // matched found
+
+      if (current.getLeft() == null) {
+        return current.getRight();
+      } else if (current.getRight() == null) {
+        return current.getLeft();
+      }
+
+      // two children: the successor takes the place of current
+      return balance(ArtGallery.getSuccessor(current), current.getLeft(),
+          removeMin(current.getRight()));
+
+    } else if (compare < 0) { // search right
+      return balance(current.getData(), current.getLeft(),
+          removeKeyHelper(name, year, current.getRight()));
+    } else { // search left
+      return balance(current.getData(), removeKeyHelper(name, year, current.getLeft()),
+          current.getRight());
+    }
+  }
+
+  /**
+   * Returns a version of the gallery with a new artwork piece added to this version
+   *
+   * @param newArtwork a new Artwork to add
+   * @return a new version storing the artworks of this version and newArtwork, or this version if
+   *         there is a match with newArtwork (same name and year) already stored in it
+   * @throws NullPointerException if newArtwork is null
+   */
+  public PersistentArtGallery addArtwork(Artwork newArtwork) {
+
+    if (newArtwork == null) {
+      throw new NullPointerException("Artwork is null");
+    }
+
+    if (getHelper(newArtwork.getName(), newArtwork.getYear(), this.keys) != null) {
+      return this; // duplicate found, nothing changed
+    }
+
+    return new PersistentArtGallery(addArtworkHelper(newArtwork, this.root),
+        addKeyHelper(newArtwork, this.keys), this.size + 1);
+  }
+
+  /**
+   * Recursive helper method which returns a copy of the subtree rooted at current with a new
+   * artwork added to it. Only the nodes on the path to the new leaf are copied.
+   *
+   * @param newArtwork The Artwork to be added
+   * @param current    The "root" of the subtree we are inserting new Artwork into.
+   * @return the "root" of the new subtree, or current itself if a match with newArtwork is already
+   *         present in it
+   */
+  protected static GalleryNode addArtworkHelper(Artwork newArtwork, GalleryNode current) {
+
+    if (current == null) {
+      return new GalleryNode(newArtwork);
+    }
+
+    int compare = current.getData().compareTo(newArtwork);
+
+    if (compare < 0) {
+
+      GalleryNode right = addArtworkHelper(newArtwork, current.getRight());
+      if (right == current.getRight()) {
+        return current; // duplicate found deeper in the tree
+      }
+      return balance(current.getData(), current.getLeft(), right);
+
+    } else if (compare > 0) {
+
+      GalleryNode left = addArtworkHelper(newArtwork, current.getLeft());
+      if (left == current.getLeft()) {
+        return current; // duplicate found deeper in the tree
+      }
+      return balance(current.getData(), left, current.getRight());
+
+    }
+
+    return current; // duplicate found
+  }
+
+  /**
+   * Returns a version of the gallery in which an artwork with the specified name, year and cost
+   * was bought from this version. The artwork is resolved by its name and year first, so it is
+   * found even if cost differs from its cost.
+   *
+   * @param name name of the artwork, artist
+   * @param year creation year of artwork
+   * @param cost cost of the artwork
+   * @return a new version storing the artworks of this version except the bought one
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria
+   */
+  public PersistentArtGallery buyArtwork(String name, int year, double cost) {
+
+    Artwork.validate(name, year, cost);
+
+    Artwork stored = getHelper(name, year, this.keys);
+    if (stored == null) {
+      throw new NoSuchElementException("No match found");
+    }
+
+    // navigate with the full key of the stored match
+    GalleryNode newRoot = buyArtworkHelper(name, year, stored.getCost(), this.root);
+    return new PersistentArtGallery(newRoot, removeKeyHelper(name, year, this.keys),
+        this.size - 1);
+  }
+
+  /**
+   * Recursive helper method which returns a copy of the subtree rooted at current without a given
+   * artwork. Only the nodes on the path to the removed artwork and to its successor are copied.
+   *
+   * @param target  a reference to a Artwork we are searching to remove
+   * @param current "root" of the subtree we are checking whether it contains a match to target.
+   * @return the "root" of the new subtree
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria in the subtree rooted at current
+   */
+  protected static GalleryNode buyArtworkHelper(Artwork target, GalleryNode current) {
+    return buyArtworkHelper(target.getName(), target.getYear(), target.getCost(), current);
+  }
+
+  /**
+   * Recursive helper method which returns a copy of the subtree rooted at current without the
+   * artwork of a key given by its components. The key is compared against the data of the nodes
+   * directly, so no probe artwork is created. Only the nodes on the path to the removed artwork
+   * and to its successor are copied.
+   *
+   * @param name    name of the artwork to remove
+   * @param year    year of creation of the artwork to remove
+   * @param cost    cost of the artwork to remove, which drives the search down the tree
+   * @param current "root" of the subtree we are checking whether it contains a match to the key.
+   * @return the "root" of the new subtree
+   * @throws a NoSuchElementException with a descriptive error message if there is no Artwork found
+   *           with the buying criteria in the subtree rooted at current
+   */
+  protected static GalleryNode buyArtworkHelper(String name, int year, double cost,
+      GalleryNode current) {
+
+    if (current == null)
+      throw new NoSuchElementException("No match found");
+
+    if (current.getData().hasKey(name, year)) { // matched found
+
+      if (current.getLeft() == null) {
+        return current.getRight();
+      } else if (current.getRight() == null) {
+        return current.getLeft();
+      }
+
+      // two children: the successor takes the place of current
+      return balance(ArtGallery.getSuccessor(current), current.getLeft(),
+          removeMin(current.getRight()));
+
+    } else if (current.getData().compareTo(year, cost, name) < 0) { // search right
+      return balance(current.getData(), current.getLeft(),
+          buyArtworkHelper(name, year, cost, current.getRight()));
+    } else { // search left
+      return balance(current.getData(), buyArtworkHelper(name, year, cost, current.getLeft()),
+          current.getRight());
+    }
+  }
+
+  /**
+   * Recursive helper method which returns a copy of a non-empty subtree without its smallest
+   * artwork
+   *
+   * @param current "root" of a non-empty subtree
+   * @return the "root" of the new subtree
+   */
+  protected static GalleryNode removeMin(GalleryNode current) {
+
+    if (current.getLeft() == null) {
+      return current.getRight();
+    }
+
+    return balance(current.getData(), removeMin(current.getLeft()), current.getRight());
+  }
+
+  /**
+   * Helper method which creates a new node from an artwork and two balanced subtrees whose heights
+   * differ by at most two, rotating the new nodes if needed so that the result is balanced. The
+   * given subtrees are never modified.
+   *
+   * @param data  artwork of the new node
+   * @param left  left subtree of the new node
+   * @param right right subtree of the new node
+   * @return the "root" of the new balanced subtree
+   */
+  protected static GalleryNode balance(Artwork data, GalleryNode left, GalleryNode right) {
+
+    int balance = GalleryNode.height(left) - GalleryNode.height(right);
+
+    if (balance > 1) { // left heavy
+
+      if (left.getBalance() >= 0) { // left-left case: single right rotation
+        return new GalleryNode(left.getData(), left.getLeft(),
+            new GalleryNode(data, left.getRight(), right));
+      }
+
+      // left-right case: double rotation
+      GalleryNode pivot = left.getRight();
+      return new GalleryNode(pivot.getData(),
+          new GalleryNode(left.getData(), left.getLeft(), pivot.getLeft()),
+          new GalleryNode(data, pivot.getRight(), right));
+
+    } else if (balance < -1) { // right heavy
+
+      if (right.getBalance() <= 0) { // right-right case: single left rotation
+        return new GalleryNode(right.getData(), new GalleryNode(data, left, right.getLeft()),
+            right.getRight());
+      }
+
+      // right-left case: double rotation
+      GalleryNode pivot = right.getLeft();
+      return new GalleryNode(pivot.getData(), new GalleryNode(data, left, pivot.getLeft()),
+          new GalleryNode(right.getData(), pivot.getRight(), right.getRight()));
+
+    }
+
+    return new GalleryNode(data, left, right); // already balanced
+  }
+
+  /**
+   * Gets the recent best Artwork in this version (meaning the largest artwork in this version)
+   *
+   * @return the best (largest) Artwork in this version, and null if this version is empty.
+   */
+  public Artwork getBestArtwork() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    GalleryNode current = this.root;
+    while (current.getRight() != null) {
+      current = current.getRight(); // move to right child
+    }
+
+    return current.getData();
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value.
+   *
+   * @param year creation year of artwork
+   * @param cost the maximum cost we would like to search for a artwork
+   * @return a list of all the artwork objects whose year equals our lookup year key and maximum
+   *         cost. If no artwork satisfies the lookup query, this method returns an empty arraylist
+   */
+  public ArrayList<Artwork> lookupAll(int year, double cost) {
+    return lookupAll(year, cost, new ArrayList<Artwork>());
+  }
+
+  /**
+   * Search for all artwork objects created on a given year and have a maximum cost value, and adds
+   * them to a given collection
+   *
+   * @param <C>    type of the collection receiving the matches
+   * @param year   creation year of artwork
+   * @param cost   the maximum cost we would like to search for a artwork
+   * @param result collection to which every matching artwork is added
+   * @return result, after all the matching artworks have been added to it
+   * @throws NullPointerException if result is null
+   */
+  public <C extends Collection<? super Artwork>> C lookupAll(int year, double cost, C result) {
+
+    if (result == null) {
+      throw new NullPointerException("Result collection is null");
+    }
+
+    ArtGallery.lookupAllHelper(year, cost, this.root, result);
+    return result;
+  }
+
+  /**
+   * Writes all the artwork stored within this version to a given destination, in the same format
+   * and order as ArtGallery.toString()
+   *
+   * @param out destination of the String representation of this version
+   * @throws IOException if out fails to append a character sequence
+   */
+  public void writeTo(Appendable out) throws IOException {
+
+    if (out == null) {
+      throw new NullPointerException("Destination is null");
+    }
+
+    ArtGallery.writeToHelper(out, this.root);
+  }
+
+  /**
+   * Returns a String representation of all the artwork stored within this version, in the same
+   * format as ArtGallery.toString()
+   *
+   * @return a String representation of all the artwork stored within this version
+   */
+  @Override
+  public String toString() {
+    return ArtGallery.toStringHelper(this.root);
+  }
+
+}